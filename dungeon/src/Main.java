@@ -1,8 +1,17 @@
 import core.Game;
+import core.StartupProfile;
+
+import java.nio.file.Paths;
 
 public class Main {
     public static void main(String[] args) {
+        StartupProfile.mark("main");
+        // java Main --batch script.txt — выполнить сценарий команд и выйти
+        if (args.length == 2 && args[0].equals("--batch")) {
+            new Game().runBatch(Paths.get(args[1]));
+            return;
+        }
         System.out.println("Запуск DungeonMini...");
         new Game().run();
     }
-}
\ No newline at end of file
+}
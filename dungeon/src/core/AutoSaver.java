@@ -0,0 +1,95 @@
+package core;
+
+import model.GameState;
+import model.RoomChanges;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// Автосохранение: снимок берётся на потоке команд, а запись идёт на отдельном I/O-потоке.
+// Если запись не успевает, промежуточные снимки одного слота схлопываются — пишется только последний.
+public final class AutoSaver implements AutoCloseable {
+    public static final String AUTOSAVE_SLOT = "autosave";
+
+    private final Supplier<SaveStore> store;
+    private final long intervalNanos;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "autosave-io");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private SaveSnapshot last;
+    // Журнал изменённых комнат мира, с которого снят last
+    private GameState tracked;
+    private RoomChanges changes;
+    private long lastSaveNanos = System.nanoTime();
+
+    private record Pending(SaveSnapshot snapshot, boolean recordScore) {
+    }
+
+    // Хранилище передаётся поставщиком, чтобы файл открывался только при первой записи
+    public AutoSaver(Supplier<SaveStore> store, long intervalNanos) {
+        this.store = store;
+        this.intervalNanos = intervalNanos;
+    }
+
+    // Интервал берётся из -Ddungeon.autosave.seconds (по умолчанию 60, 0 — выключено)
+    public static long configuredInterval() {
+        return TimeUnit.SECONDS.toNanos(Long.getLong("dungeon.autosave.seconds", 60));
+    }
+
+    // Вызывается после каждой команды; сохраняет, только если прошёл интервал
+    public void tick(GameState s) {
+        if (intervalNanos > 0 && System.nanoTime() - lastSaveNanos >= intervalNanos) {
+            requestSave(s, AUTOSAVE_SLOT, false);
+        }
+    }
+
+    public void requestSave(GameState s, String slot, boolean recordScore) {
+        if (s != tracked) {
+            tracked = s;
+            changes = s.trackRoomChanges();
+            last = null;
+        }
+        last = last == null ? SaveSnapshot.capture(s) : SaveSnapshot.capture(s, last, changes);
+        lastSaveNanos = System.nanoTime();
+        SaveSnapshot snapshot = last;
+        // Не теряем запись в таблицу лидеров, если ручное сохранение перекрыл более свежий снимок
+        pending.compute(slot, (k, prev) -> new Pending(snapshot, recordScore || prev != null && prev.recordScore()));
+        io.execute(() -> drain(slot));
+    }
+
+    private void drain(String slot) {
+        Pending p = pending.remove(slot);
+        if (p == null) return;
+        try {
+            store.get().put(p.snapshot().player(), slot, SaveLoad.encode(p.snapshot()));
+            if (p.recordScore()) SaveLoad.writeScore(p.snapshot().player(), p.snapshot().score());
+        } catch (RuntimeException e) {
+            System.err.println("Автосохранение не удалось: " + e.getMessage());
+        }
+    }
+
+    // Дожидается окончания уже запущенных записей
+    public void awaitIdle() {
+        try {
+            io.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            // Поток записи уже остановлен — ждать нечего
+        }
+    }
+
+    @Override
+    public void close() {
+        io.shutdown();
+        try {
+            io.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
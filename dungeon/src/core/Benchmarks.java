@@ -0,0 +1,550 @@
+package core;
+
+import model.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Замеры производительности. Запускаются отдельно от игры, чтобы не нагружать её из приглашения ввода:
+//   java -cp out core.Benchmarks <замер> [параметры]
+public final class Benchmarks {
+    private static final int COMMANDS = 20_000;
+    private static final int SAVE_EVERY = 2_000;
+
+    public static void main(String[] args) {
+        String name = args.length == 0 ? "" : args[0];
+        List<String> a = Arrays.asList(args).subList(Math.min(1, args.length), args.length);
+        switch (name) {
+            case "startup" -> {
+                if (!startup(a.isEmpty() ? 10 : Integer.parseInt(a.getFirst()), a.size() > 1 ? a.get(1) : null)) {
+                    System.exit(1);
+                }
+            }
+            case "autosave" -> autosave(a.isEmpty() ? 200_000 : Integer.parseInt(a.getFirst()));
+            case "store" -> saveStore(a.isEmpty() ? 200_000 : Integer.parseInt(a.getFirst()));
+            case "stats" -> scoreStats(a.isEmpty() ? 10_000_000 : Integer.parseInt(a.getFirst()));
+            case "entities" -> entities(a.isEmpty() ? 1_000_000 : Integer.parseInt(a.getFirst()));
+            case "errors" -> errors(a.isEmpty() ? 1_000_000 : Integer.parseInt(a.getFirst()));
+            case "find" -> worldIndex(a.isEmpty() ? 1_000_000 : Integer.parseInt(a.getFirst()));
+            case "sessions" -> sessions(a.isEmpty() ? 20_000 : Integer.parseInt(a.getFirst()),
+                    a.size() > 1 ? Long.parseLong(a.get(1)) << 10 : SessionManager.configuredBudget());
+            default -> {
+                System.out.println("Замеры: startup [запусков] [classpath сборки для сравнения], autosave [комнат], store [слотов], stats [строк], entities [монстров],");
+                System.out.println("        errors [итераций], find [предметов], sessions [сессий] [бюджет КБ]");
+                System.exit(2);
+            }
+        }
+    }
+
+    // Запуск игры в отдельных JVM до выхода по команде exit: медианы времени и выделенной памяти.
+    // Выделение берётся из итоговой печати кучи (-Xlog:gc+heap+exit) при Serial GC с молодым поколением,
+    // в которое запуск помещается без сборок, и без TLAB, чтобы занятое совпадало с выделенным побайтно, —
+    // так можно мерить и старые сборки без StartupProfile.
+    // С baseline сравнивает две сборки; false, если текущая хуже: память более чем на 5%, время — на 10%
+    static boolean startup(int runs, String baseline) {
+        List<String> builds = baseline == null ? List.of(System.getProperty("java.class.path"))
+                : List.of(System.getProperty("java.class.path"), baseline);
+        long[][] result = measureStartup(builds, runs);
+        long[] current = result[0];
+        System.out.printf("Текущая сборка: %d мс до выхода, выделено %d KB (медианы по %d запускам)%n",
+                current[0], current[1], runs);
+        if (baseline == null) return true;
+        long[] base = result[1];
+        System.out.printf("Сборка %s: %d мс до выхода, выделено %d KB%n", baseline, base[0], base[1]);
+        System.out.printf("Разница: время %+d мс, память %+d KB%n", current[0] - base[0], current[1] - base[1]);
+        boolean ok = current[0] <= base[0] * 1.10 && current[1] <= base[1] * 1.05;
+        if (!ok) System.out.println("Запуск стал медленнее или тяжелее сравниваемой сборки!");
+        return ok;
+    }
+
+    // Сборки запускаются по очереди в каждом круге, чтобы фоновая нагрузка машины делилась между ними поровну
+    private static long[][] measureStartup(List<String> classpaths, int runs) {
+        Path dir = tempDir();
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        long[][] millis = new long[classpaths.size()][runs];
+        long[][] allocated = new long[classpaths.size()][runs];
+        try {
+            for (int i = -1; i < runs; i++) { // первый круг — прогрев файлового кэша, не считается
+                for (int b = 0; b < classpaths.size(); b++) {
+                    Process p = new ProcessBuilder(java, "-XX:+UseSerialGC", "-XX:-UseTLAB", "-Xmn64m",
+                            "-Xlog:gc+heap+exit", "-cp", classpaths.get(b), "Main")
+                            .directory(dir.toFile()).redirectErrorStream(true).start();
+                    long t = System.nanoTime();
+                    try (var in = p.outputWriter()) {
+                        in.write("exit");
+                        in.newLine();
+                    }
+                    long used = -1;
+                    for (String line : p.inputReader().lines().toList()) {
+                        int at = line.indexOf("def new generation");
+                        if (at >= 0) {
+                            String tail = line.substring(line.indexOf("used ", at) + 5);
+                            used = Long.parseLong(tail.substring(0, tail.indexOf('K')));
+                        }
+                    }
+                    p.waitFor();
+                    if (used < 0 || p.exitValue() != 0) {
+                        throw new IllegalStateException("Запуск " + classpaths.get(b) + " не удался");
+                    }
+                    if (i < 0) continue;
+                    millis[b][i] = millisSince(t);
+                    allocated[b][i] = used;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось запустить игру", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            deleteTree(dir);
+        }
+        long[][] medians = new long[classpaths.size()][];
+        for (int b = 0; b < medians.length; b++) {
+            Arrays.sort(millis[b]);
+            Arrays.sort(allocated[b]);
+            medians[b] = new long[]{millis[b][runs / 2], allocated[b][runs / 2]};
+        }
+        return medians;
+    }
+
+    // Сравнивает задержку команд при синхронном сохранении и при фоновом автосохранении
+    static void autosave(int roomCount) {
+        GameState world = largeWorld(roomCount);
+        Path dir = tempDir();
+        System.out.println("Мир: " + roomCount + " комнат, команд: " + COMMANDS + ", сохранение каждые " + SAVE_EVERY);
+
+        try (SaveStore store = new SaveStore(dir.resolve("bench-saves.db"))) {
+            long[] sync = new long[COMMANDS];
+            for (int i = 0; i < COMMANDS; i++) {
+                long t = System.nanoTime();
+                simulateCommand(world, i);
+                if (i % SAVE_EVERY == 0) {
+                    store.put(world.getPlayer().getName(), "bench", SaveLoad.encode(SaveSnapshot.capture(world)));
+                }
+                sync[i] = System.nanoTime() - t;
+            }
+            printLatency("синхронно", sync);
+            printLatency("  с записью", everySave(sync));
+
+            long[] async = new long[COMMANDS];
+            long[] snapshotCpu = new long[COMMANDS / SAVE_EVERY];
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            try (AutoSaver saver = new AutoSaver(() -> store, 0)) {
+                for (int i = 0; i < COMMANDS; i++) {
+                    long t = System.nanoTime();
+                    simulateCommand(world, i);
+                    if (i % SAVE_EVERY == 0) {
+                        long cpu = threads.getCurrentThreadCpuTime();
+                        saver.requestSave(world, "bench", false);
+                        snapshotCpu[i / SAVE_EVERY] = threads.getCurrentThreadCpuTime() - cpu;
+                    }
+                    async[i] = System.nanoTime() - t;
+                }
+                saver.awaitIdle();
+            }
+            printLatency("в фоне", async);
+            // Первый снимок полный, остальные копируют только изменённые комнаты; хвост остальных команд
+            // на одном ядре — это вытеснение потоком записи, а не работа самой команды
+            printLatency("  со снимком", everySave(async));
+            printLatency("  CPU снимка", snapshotCpu);
+        }
+        deleteTree(dir);
+    }
+
+    private static long[] everySave(long[] latencies) {
+        long[] saves = new long[(latencies.length + SAVE_EVERY - 1) / SAVE_EVERY];
+        for (int i = 0; i < saves.length; i++) saves[i] = latencies[i * SAVE_EVERY];
+        return saves;
+    }
+
+    // Запись, переоткрытие (перестроение индекса), случайное чтение и перезапись с компакцией
+    static void saveStore(int slots) {
+        Path dir = tempDir();
+        Path file = dir.resolve("bench-saves.db");
+        byte[] data = new byte[256];
+        Arrays.fill(data, (byte) 'x');
+
+        long t = System.nanoTime();
+        try (SaveStore store = new SaveStore(file)) {
+            for (int i = 0; i < slots; i++) store.put("Игрок " + (i % 1000), "слот " + i, data);
+        }
+        System.out.println("Запись " + slots + " слотов: " + millisSince(t) + " мс");
+
+        t = System.nanoTime();
+        try (SaveStore store = new SaveStore(file)) {
+            System.out.println("Открытие и индекс: " + millisSince(t) + " мс, слотов: " + store.size());
+
+            Random rnd = new Random(42);
+            int reads = Math.min(slots, 100_000);
+            t = System.nanoTime();
+            for (int i = 0; i < reads; i++) {
+                int n = rnd.nextInt(slots);
+                store.get("Игрок " + (n % 1000), "слот " + n);
+            }
+            System.out.println("Чтение: " + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - t) / Math.max(reads, 1) + " мкс на слот");
+
+            long before = store.fileSize();
+            t = System.nanoTime();
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < slots; i++) store.put("Игрок " + (i % 1000), "слот " + i, data);
+            }
+            System.out.println("Двойная перезапись: " + millisSince(t) + " мс, файл " + before / 1024 + " KB -> "
+                    + store.fileSize() / 1024 + " KB");
+        }
+        deleteTree(dir);
+    }
+
+    // Генерирует историю очков заданного размера и считает по ней агрегаты
+    static void scoreStats(int rows) {
+        Path dir = tempDir();
+        Path file = dir.resolve("bench-scores.csv");
+        Random rnd = new Random(42);
+        LocalDateTime ts = LocalDateTime.of(2025, 1, 1, 0, 0);
+        try (BufferedWriter w = Files.newBufferedWriter(file)) {
+            w.write("ts,player,score");
+            w.newLine();
+            for (int i = 0; i < rows; i++) {
+                w.write(ts.plusSeconds(i * 7L) + ",Игрок " + rnd.nextInt(1000) + "," + rnd.nextInt(5000));
+                w.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать историю очков", e);
+        }
+        try {
+            System.out.println("Файл: " + Files.size(file) / (1024 * 1024) + " MB, строк: " + rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ScoreStats.compute(file, null, null); // прогрев
+        ScoreStats.print(file, null, null, "Игрок 7");
+        deleteTree(dir);
+    }
+
+    // Массовые операции над монстрами: объекты в куче против массивов EntityStore
+    static void entities(int count) {
+        Random rnd = new Random(42);
+        List<MonsterObject> objects = new ArrayList<>(count);
+        EntityStore store = new EntityStore(count);
+        for (int i = 0; i < count; i++) {
+            int level = 1 + rnd.nextInt(20), hp = 5 + rnd.nextInt(100), region = rnd.nextInt(1000);
+            objects.add(new MonsterObject("Монстр " + i, level, hp, region));
+            new Monster(store, "Монстр " + i, level, hp).setRegion(region);
+        }
+        // Перемешиваем, чтобы объекты лежали в куче не подряд, как после долгой игры
+        Collections.shuffle(objects, rnd);
+        System.out.println("Монстров: " + count);
+
+        for (int round = 0; round < 3; round++) {
+            long t = System.nanoTime();
+            for (MonsterObject m : objects) {
+                if (m.hp > 0) m.hp = Math.min(m.hp + 1, m.maxHp);
+            }
+            long objRegen = System.nanoTime() - t;
+            t = System.nanoTime();
+            store.regenerateMonsters(1);
+            long soaRegen = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            for (MonsterObject m : objects) {
+                m.level = Math.max(1, m.level * 110 / 100);
+                m.hp = m.hp * 110 / 100;
+                m.maxHp = m.maxHp * 110 / 100;
+            }
+            long objScale = System.nanoTime() - t;
+            t = System.nanoTime();
+            store.scaleMonsters(110);
+            long soaScale = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            MonsterObject strongest = null;
+            for (MonsterObject m : objects) {
+                if (m.region == 7 && m.hp > 0 && (strongest == null || m.level > strongest.level
+                        || m.level == strongest.level && m.hp > strongest.hp)) {
+                    strongest = m;
+                }
+            }
+            long objScan = System.nanoTime() - t;
+            t = System.nanoTime();
+            int strongestId = store.strongestMonster(7);
+            long soaScan = System.nanoTime() - t;
+
+            System.out.printf("  раунд %d: регенерация %d / %d мкс, масштаб %d / %d мкс, поиск %d / %d мкс (объекты / массивы)%n",
+                    round + 1, objRegen / 1000, soaRegen / 1000, objScale / 1000, soaScale / 1000, objScan / 1000, soaScan / 1000);
+            if ((strongest == null) != (strongestId < 0)) System.out.println("  Результаты поиска расходятся!");
+        }
+    }
+
+    private static final class MonsterObject {
+        final String name;
+        int hp, maxHp, level;
+        final int region;
+
+        MonsterObject(String name, int level, int hp, int region) {
+            this.name = name;
+            this.level = level;
+            this.hp = hp;
+            this.maxHp = hp;
+            this.region = region;
+        }
+    }
+
+    // Поиск по обратному индексу мира против перебора всех комнат; сколько стоит его поддержка при переносе предметов
+    static void worldIndex(int itemCount) {
+        String[] kinds = {"Зелье", "Малое зелье", "Кинжал", "Топор", "Свиток", "Факел", "Ключ", "Щит"};
+        Random rnd = new Random(42);
+        int roomCount = Math.max(1, itemCount / 4);
+        long t = System.nanoTime();
+        GameState world = new GameState();
+        world.setPlayer(new Player(world.getEntities(), "Бенчмарк", 100, 5));
+        for (int i = 0; i < roomCount; i++) {
+            Room r = new Room("Комната " + i, "Сгенерированная комната.");
+            world.addRoom(r);
+            for (int j = 0; j < 4; j++) {
+                r.addItem(new Potion(kinds[rnd.nextInt(kinds.length)] + " " + rnd.nextInt(1000), 1));
+            }
+            if (i % 10 == 0) r.setMonster(new Monster(world.getEntities(), "Крыса " + rnd.nextInt(1000), 1, 5));
+        }
+        Room hidden = world.getRooms().get(rnd.nextInt(roomCount));
+        hidden.addItem(new Weapon("Меч легендарного героя", 10));
+        System.out.println("Комнат: " + roomCount + ", предметов: " + roomCount * 4 + ", различных имён: "
+                + world.getIndex().distinctNames() + ", построение: " + millisSince(t) + " мс");
+
+        WorldIndex index = world.getIndex();
+        long sink = 0;
+        for (int round = 0; round < 3; round++) {
+            t = System.nanoTime();
+            for (Room r : world.getRooms()) {
+                for (Item item : r.getItems()) {
+                    if (item.getName().equalsIgnoreCase("меч легендарного героя")) sink += r.getId();
+                }
+            }
+            long scan = System.nanoTime() - t;
+
+            int lookups = 100_000;
+            t = System.nanoTime();
+            for (int i = 0; i < lookups; i++) sink += index.roomsWithItem("Меч легендарного героя").length;
+            long exact = (System.nanoTime() - t) / lookups;
+
+            t = System.nanoTime();
+            for (int i = 0; i < 1000; i++) sink += index.search("легендарн", 10).size();
+            long partial = (System.nanoTime() - t) / 1000;
+
+            t = System.nanoTime();
+            for (int i = 0; i < 1000; i++) sink += index.search("зелье 42", 10).size();
+            long common = (System.nanoTime() - t) / 1000;
+
+            t = System.nanoTime();
+            for (int i = 0; i < 1000; i++) sink += index.search("ш", 10).size();
+            long shortQuery = (System.nanoTime() - t) / 1000;
+
+            // Перенос предмета между комнатами: снятие и добавление в индексе
+            t = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                Room from = world.getRooms().get(rnd.nextInt(roomCount));
+                Room to = world.getRooms().get(rnd.nextInt(roomCount));
+                if (from.getItems().isEmpty()) continue;
+                Item item = from.getItems().getLast();
+                from.removeItem(item);
+                to.addItem(item);
+            }
+            long move = (System.nanoTime() - t) / lookups;
+
+            System.out.printf("  раунд %d: перебор %d мкс, точный поиск %d нс, по части %d / %d / %d нс, перенос %d нс%n",
+                    round + 1, scan / 1000, exact, partial, common, shortQuery, move);
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    // Много сессий под бюджетом памяти: большая часть простаивает и вытесняется в файл,
+    // горячие сессии остаются в памяти; проверяется, что поднятая сессия ничего не потеряла
+    static void sessions(int count, long budgetBytes) {
+        checkSessionEstimate(false);
+        checkSessionEstimate(true);
+        Path dir = tempDir();
+        Random rnd = new Random(42);
+        long t = System.nanoTime();
+        try (SessionManager manager = new SessionManager(dir.resolve("bench-sessions.spill"), budgetBytes, Game::newWorld)) {
+            for (int i = 0; i < count; i++) {
+                int n = i;
+                manager.withSession("игрок-" + i, s -> {
+                    s.addScore(n);
+                    s.setCurrent(s.getRooms().get(n % s.getRooms().size()));
+                    return null;
+                });
+            }
+            System.out.println("Сессий: " + count + ", создание: " + millisSince(t) + " мс");
+            System.out.println("  " + manager.stats());
+
+            // 90% команд приходится на 5% горячих сессий
+            int hot = Math.max(1, count / 20), lost = 0;
+            t = System.nanoTime();
+            for (int i = 0; i < COMMANDS; i++) {
+                int n = rnd.nextInt(10) < 9 ? rnd.nextInt(hot) : rnd.nextInt(count);
+                int score = manager.withSession("игрок-" + n, s -> {
+                    Room next = s.getCurrent().getExit(Direction.NORTH);
+                    if (next != null && !s.getCurrent().isDoorLocked(Direction.NORTH)) s.setCurrent(next);
+                    return s.getScore();
+                });
+                if (score != n) lost++;
+            }
+            System.out.println("Команд: " + COMMANDS + ", время: " + millisSince(t) + " мс, потеряно состояний: " + lost);
+            System.out.println("  " + manager.stats());
+        }
+        deleteTree(dir);
+    }
+
+    // Сверка оценки SessionManager.estimateBytes с приростом кучи на тысячах миров
+    private static void checkSessionEstimate(boolean withIndex) {
+        int n = 5_000;
+        List<GameState> worlds = new ArrayList<>(n);
+        long before = usedHeap();
+        long estimated = 0;
+        for (int i = 0; i < n; i++) {
+            GameState s = Game.newWorld();
+            if (withIndex) s.getIndex();
+            worlds.add(s);
+            estimated += SessionManager.estimateBytes(s);
+        }
+        long measured = usedHeap() - before;
+        System.out.println("Память сессии" + (withIndex ? " с индексом" : "") + ": замер " + measured / worlds.size()
+                + " Б, оценка " + estimated / worlds.size() + " Б");
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    // Цена пути ошибки на глубине стека, похожей на реальную: исключение со стеком,
+    // исключение без стека (InvalidCommandException) и возврат Outcome.error
+    static void errors(int iterations) {
+        long sink = 0;
+        for (int round = 0; round < 3; round++) {
+            long t = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                try {
+                    throwAt(ERROR_DEPTH, true);
+                } catch (RuntimeException e) {
+                    sink += e.getMessage().length();
+                }
+            }
+            long withStack = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                try {
+                    throwAt(ERROR_DEPTH, false);
+                } catch (RuntimeException e) {
+                    sink += e.getMessage().length();
+                }
+            }
+            long stackless = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += returnAt(ERROR_DEPTH).message().length();
+            }
+            long outcome = System.nanoTime() - t;
+
+            System.out.printf("  раунд %d: со стеком %d нс, без стека %d нс, Outcome %d нс (на ошибку)%n", round + 1,
+                    withStack / iterations, stackless / iterations, outcome / iterations);
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    private static final int ERROR_DEPTH = 20;
+
+    private static int throwAt(int depth, boolean withStack) {
+        if (depth == 0) {
+            if (withStack) throw new IllegalStateException("Нет пути в направлении: north");
+            throw new InvalidCommandException("Нет пути в направлении: north");
+        }
+        return throwAt(depth - 1, withStack) + 1;
+    }
+
+    private static Outcome returnAt(int depth) {
+        if (depth == 0) return Outcome.error("Нет пути в направлении: north");
+        return returnAt(depth - 1);
+    }
+
+    private static Path tempDir() {
+        try {
+            return Files.createTempDirectory("dungeon-bench");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать временный каталог", e);
+        }
+    }
+
+    private static void deleteTree(Path dir) {
+        try (var files = Files.list(dir)) {
+            for (Path f : files.toList()) Files.deleteIfExists(f);
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            System.err.println("Не удалось удалить временные файлы: " + e.getMessage());
+        }
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static GameState largeWorld(int roomCount) {
+        GameState s = new GameState();
+        s.setPlayer(new Player(s.getEntities(), "Бенчмарк", 100, 5));
+        Room prev = null;
+        for (int i = 0; i < roomCount; i++) {
+            Room r = new Room("Комната " + i, "Сгенерированная комната.");
+            r.addItem(new Potion("Зелье " + i, 3));
+            r.addItem(new Weapon("Кинжал " + i, 1));
+            r.setMonster(new Monster(s.getEntities(), "Крыса " + i, 1, 5));
+            if (prev != null) {
+                prev.setExit(Direction.EAST, r);
+                r.setExit(Direction.WEST, prev);
+            }
+            s.addRoom(r);
+            prev = r;
+        }
+        s.setCurrent(s.getRooms().getFirst());
+        return s;
+    }
+
+    // Типичная работа команды: переход, перенос предмета, удар по монстру
+    private static void simulateCommand(GameState s, int i) {
+        Room next = s.getRooms().get(i % s.getRooms().size());
+        s.setCurrent(next);
+        Player p = s.getPlayer();
+        if (!next.getItems().isEmpty()) {
+            Item item = next.getItems().getFirst();
+            next.removeItem(item);
+            p.getInventory().add(item);
+        } else if (!p.getInventory().isEmpty()) {
+            next.addItem(p.getInventory().removeLast());
+        }
+        Monster m = next.getMonster();
+        if (m != null) m.setHp(m.getHp() - 1);
+        s.addScore(1);
+    }
+
+    private static void printLatency(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("  %-10s p50=%d мкс p99=%d мкс p99.9=%d мкс max=%d мкс%n", label,
+                TimeUnit.NANOSECONDS.toMicros(sorted[sorted.length / 2]),
+                TimeUnit.NANOSECONDS.toMicros(sorted[(int) (sorted.length * 0.99)]),
+                TimeUnit.NANOSECONDS.toMicros(sorted[(int) (sorted.length * 0.999)]),
+                TimeUnit.NANOSECONDS.toMicros(sorted[sorted.length - 1]));
+    }
+
+    private Benchmarks() {
+    }
+}
@@ -4,4 +4,4 @@ import model.GameState;
 import java.util.List;
 
 @FunctionalInterface
-public interface Command { void execute(GameState ctx, List<String> args); }
+public interface Command { Outcome execute(GameState ctx, List<String> args); }
@@ -0,0 +1,106 @@
+package core;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Раздаёт дельты состояния любому числу зрителей. У каждого зрителя своя ограниченная очередь:
+// если он отстаёт и очередь заполнена, всё накопленное склеивается в одну дельту.
+public final class DeltaHub {
+    private final List<Spectator> spectators = new CopyOnWriteArrayList<>();
+    private final Queue<Spectator> joining = new ConcurrentLinkedQueue<>();
+    private long published;
+    private int lastSize;
+
+    // Вызывается на потоке команд. Новые зрители подключаются после рассылки
+    // и первым получают полное состояние, которое уже включает эту дельту
+    void publish(StateDelta delta, Supplier<StateDelta> full) {
+        if (delta != null) {
+            published++;
+            if (!spectators.isEmpty()) {
+                lastSize = delta.encode().length;
+                for (Spectator s : spectators) s.offer(delta);
+            }
+        }
+        StateDelta snapshot = null;
+        for (Spectator s; (s = joining.poll()) != null; ) {
+            if (snapshot == null) snapshot = full.get();
+            s.offer(snapshot);
+            spectators.add(s);
+        }
+    }
+
+    // Можно вызывать с любого потока; полное состояние придёт после ближайшей команды
+    public Spectator subscribe(int maxQueued) {
+        Spectator s = new Spectator(this, maxQueued);
+        joining.add(s);
+        return s;
+    }
+
+    // Нет ни зрителей, ни ожидающих подключения — дельты некому отдавать
+    boolean isIdle() {
+        return spectators.isEmpty() && joining.isEmpty();
+    }
+
+    public int subscriberCount() {
+        return spectators.size();
+    }
+
+    public String stats() {
+        long coalesced = 0;
+        for (Spectator s : spectators) coalesced += s.coalesced;
+        return "Дельт: " + published + ", зрителей: " + spectators.size()
+                + ", размер последней: " + lastSize + " байт, склеено у отстающих: " + coalesced;
+    }
+
+    public static final class Spectator implements AutoCloseable {
+        private final DeltaHub hub;
+        private final int maxQueued;
+        private final ArrayDeque<StateDelta> queue = new ArrayDeque<>();
+        private volatile long coalesced;
+
+        private Spectator(DeltaHub hub, int maxQueued) {
+            this.hub = hub;
+            this.maxQueued = Math.max(1, maxQueued);
+        }
+
+        private synchronized void offer(StateDelta delta) {
+            if (queue.size() >= maxQueued) {
+                StateDelta merged = queue.pollFirst();
+                coalesced += queue.size() + 1;
+                while (!queue.isEmpty()) merged = merged.merge(queue.pollFirst());
+                queue.addLast(merged.merge(delta));
+            } else {
+                queue.addLast(delta);
+            }
+            notifyAll();
+        }
+
+        // Следующая дельта в двоичном виде или null, если за timeout ничего не пришло
+        public synchronized byte[] poll(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (queue.isEmpty()) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return null;
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
+            return queue.pollFirst().encode();
+        }
+
+        // Неблокирующий вариант poll
+        public synchronized byte[] poll() {
+            StateDelta d = queue.pollFirst();
+            return d == null ? null : d.encode();
+        }
+
+        @Override
+        public void close() {
+            hub.joining.remove(this);
+            hub.spectators.remove(this);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package core;
+
+import model.*;
+
+import java.util.*;
+
+// Строит StateDelta после команды: сравнивает поля игрока с последними отправленными,
+// а комнаты берёт из своего журнала изменений GameState плюс текущую (HP монстра меняется без версии комнаты)
+final class DeltaTracker {
+    private final RoomChanges changes;
+    private long seq;
+    private int hp, attack, score, room = -1;
+    private Item[] inventory = new Item[0];
+    private int[] sentVersion = new int[0];
+    private int[] sentMonsterHp = new int[0];
+
+    DeltaTracker(GameState s) {
+        changes = s.trackRoomChanges();
+    }
+
+    StateDelta next(GameState s) {
+        SortedMap<Integer, StateDelta.RoomDelta> rooms = new TreeMap<>();
+        changes.drain(r -> collect(r, rooms));
+        if (s.getCurrent() != null) collect(s.getCurrent(), rooms);
+
+        Player p = s.getPlayer();
+        int flags = 0;
+        if (p.getHp() != hp) flags |= StateDelta.HP;
+        if (p.getAttack() != attack) flags |= StateDelta.ATTACK;
+        if (s.getScore() != score) flags |= StateDelta.SCORE;
+        if (s.getCurrent() != null && s.getCurrent().getId() != room) flags |= StateDelta.ROOM;
+        if (inventoryChanged(p.getInventory())) flags |= StateDelta.INVENTORY;
+        if (flags == 0 && rooms.isEmpty()) return null;
+        return remember(s, flags, rooms);
+    }
+
+    // Пока зрителей нет: изменения забываются, базой для следующей дельты станет full
+    void skip() {
+        changes.drain(r -> { });
+    }
+
+    // Полное состояние для нового подписчика; номер совпадает с последней выпущенной дельтой.
+    // Заодно становится базой сравнения, так как после skip старая база устарела
+    StateDelta full(GameState s) {
+        SortedMap<Integer, StateDelta.RoomDelta> rooms = new TreeMap<>();
+        for (Room r : s.getRooms()) {
+            rooms.put(r.getId(), roomDelta(r));
+            collect(r, new TreeMap<>());
+        }
+        Player p = s.getPlayer();
+        hp = p.getHp();
+        attack = p.getAttack();
+        score = s.getScore();
+        room = s.getCurrent().getId();
+        inventory = p.getInventory().toArray(new Item[0]);
+        return new StateDelta(seq, seq, StateDelta.HP | StateDelta.ATTACK | StateDelta.SCORE | StateDelta.ROOM
+                | StateDelta.INVENTORY, p.getHp(), p.getAttack(), s.getScore(), s.getCurrent().getId(),
+                names(p.getInventory()), rooms);
+    }
+
+    private StateDelta remember(GameState s, int flags, SortedMap<Integer, StateDelta.RoomDelta> rooms) {
+        Player p = s.getPlayer();
+        hp = p.getHp();
+        attack = p.getAttack();
+        score = s.getScore();
+        room = s.getCurrent() == null ? -1 : s.getCurrent().getId();
+        if ((flags & StateDelta.INVENTORY) != 0) inventory = p.getInventory().toArray(new Item[0]);
+        seq++;
+        List<String> items = (flags & StateDelta.INVENTORY) != 0 ? names(p.getInventory()) : List.of();
+        return new StateDelta(seq, seq, flags, hp, attack, score, room, items, rooms);
+    }
+
+    private void collect(Room r, SortedMap<Integer, StateDelta.RoomDelta> rooms) {
+        int id = r.getId();
+        if (id < 0) return;
+        if (id >= sentVersion.length) {
+            int n = Math.max(id + 1, sentVersion.length * 2);
+            int old = sentVersion.length;
+            sentVersion = Arrays.copyOf(sentVersion, n);
+            sentMonsterHp = Arrays.copyOf(sentMonsterHp, n);
+            // Ещё не отправленные комнаты считаем изменёнными
+            Arrays.fill(sentVersion, old, n, -1);
+        }
+        int monsterHp = r.getMonster() == null ? -1 : r.getMonster().getHp();
+        if (sentVersion[id] == r.getVersion() && sentMonsterHp[id] == monsterHp) return;
+        sentVersion[id] = r.getVersion();
+        sentMonsterHp[id] = monsterHp;
+        rooms.put(id, roomDelta(r));
+    }
+
+    private static StateDelta.RoomDelta roomDelta(Room r) {
+        return new StateDelta.RoomDelta(r.getId(), r.getMonster() == null ? -1 : r.getMonster().getHp(),
+                r.getLockMask(), names(r.getItems()));
+    }
+
+    private boolean inventoryChanged(List<Item> current) {
+        if (current.size() != inventory.length) return true;
+        for (int i = 0; i < inventory.length; i++) {
+            if (current.get(i) != inventory[i]) return true;
+        }
+        return false;
+    }
+
+    private static List<String> names(List<Item> items) {
+        List<String> names = new ArrayList<>(items.size());
+        for (Item i : items) names.add(i.getName());
+        return names;
+    }
+}
@@ -2,31 +2,75 @@ package core;
 
 import model.*;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class Game {
     private final GameState state = new GameState();
-    private final Map<String, Command> commands = new LinkedHashMap<>();
+    private final Map<String, Command> commands = new HashMap<>();
+    // Автосохранение (с его потоком и лямбдами) создаётся при первом сохранении или первом такте после команды
+    private AutoSaver autoSaver;
+    private static final int MAX_MACRO_DEPTH = 8;
+    private final Map<String, String> macros = new LinkedHashMap<>();
+    private int executedInBatch;
+    // Поток дельт заводится только при первом зрителе; до этого команды его не оплачивают
+    private DeltaTracker deltas;
+    private volatile DeltaHub spectators;
+    private DeltaHub.Spectator consoleWatcher;
+    private int scriptDepth;
+    private boolean worldReady;
 
     static {
         WorldInfo.touch("Game");
     }
 
     public Game() {
-        registerCommands();
-        bootstrapWorld();
+        StartupProfile.mark("game");
     }
 
-    private void registerCommands() {
-        //Изначальная реализация - команды в строку
-        //commands.put("help", (ctx, a) -> System.out.println("Команды: " + String.join(", ", commands.keySet())));
+    // Мир строится при первом обращении, а не до первого приглашения ввода
+    private GameState state() {
+        if (!worldReady) {
+            bootstrapWorld(state);
+            worldReady = true;
+            StartupProfile.mark("world");
+        }
+        return state;
+    }
+
+    private AutoSaver autoSaver() {
+        if (autoSaver == null) autoSaver = new AutoSaver(SaveLoad::store, AutoSaver.configuredInterval());
+        return autoSaver;
+    }
 
-        //Красивее и информативнее, но проще и более громоздко
-            commands.put("help", (ctx, a) -> {
+    // Команды создаются лениво: лямбда связывается только при первом вызове команды
+    private Command command(String name) {
+        Command c = commands.get(name);
+        if (c == null) {
+            c = createCommand(name);
+            if (c != null) commands.put(name, c);
+        }
+        return c;
+    }
+
+    // Недоступное хранилище сохранений (занято, нет прав, битый диск) — не ошибка в программе
+    private static Outcome storeError(UncheckedIOException e) {
+        return Outcome.error(e.getMessage() + ": " + e.getCause().getMessage());
+    }
+
+    private Command createCommand(String name) {
+        return switch (name) {
+            //Изначальная реализация - команды в строку
+            //commands.put("help", (ctx, a) -> System.out.println("Команды: " + String.join(", ", commands.keySet())));
+
+            //Красивее и информативнее, но проще и более громоздко
+            case "help" -> (ctx, a) -> {
                 System.out.println("===========================================");
                 System.out.println("|           ДОСТУПНЫЕ КОМАНДЫ             |");
                 System.out.println("|-----------------------------------------|");
@@ -35,314 +79,495 @@ public class Game {
                 System.out.println("| move      - перемещение между комнатами |");
                 System.out.println("| take      - взять предмет               |");
                 System.out.println("| inventory - показать инвентарь          |");
+                System.out.println("| find      - где предмет или монстр      |");
                 System.out.println("| use       - использовать предмет        |");
                 System.out.println("| fight     - сразиться с монстром        |");
                 System.out.println("| save      - сохранить игру              |");
                 System.out.println("| load      - загрузить игру              |");
+                System.out.println("| slots     - список слотов сохранений    |");
                 System.out.println("| gc-stats  - статистика памяти           |");
                 System.out.println("| gc-force  - очистка памяти              |");
                 System.out.println("| scores    - таблица лидеров             |");
+                System.out.println("| stats     - статистика игроков          |");
+                System.out.println("| startup   - профиль запуска             |");
+                System.out.println("| macro     - макросы: macro имя = к1; к2 |");
+                System.out.println("| batch     - выполнить файл сценария     |");
+                System.out.println("| deltas    - дельты (watch - вкл/выкл)   |");
                 System.out.println("| exit      - выход из игры               |");
                 System.out.println("| help      - эта справка                 |");
                 System.out.println("===========================================");
                 System.out.println();
                 System.out.println("  Примеры:");
                 System.out.println("  move north, take Малое зелье, use Зелье");
+                System.out.println("  move north; take Малое зелье; use Малое зелье");
                 System.out.println();
-            });
-
-        commands.put("gc-stats", (ctx, a) -> {
-            Runtime rt = Runtime.getRuntime();
-            long free = rt.freeMemory(), total = rt.totalMemory(), used = total - free;
-            System.out.println("Память: used=" + used + " free=" + free + " total=" + total);
-        });
-
-        //Демонстрация реализации garbageCollector
-        commands.put("alloc", (ctx, a) -> {
-            // Демонстрация работы GC - создаем много объектов
-            List<String> garbage = new ArrayList<>();
-            for (int i = 0; i < 100000; i++) {
-                garbage.add("String object " + i);
-            }
-            System.out.println("Создано 100000 объектов. GC должен их очистить.");
-        });
+                return Outcome.ok();
+            };
+
+            case "gc-stats" -> (ctx, a) -> {
+                Runtime rt = Runtime.getRuntime();
+                long free = rt.freeMemory(), total = rt.totalMemory(), used = total - free;
+                System.out.println("Память: used=" + used + " free=" + free + " total=" + total);
+                return Outcome.ok();
+            };
+
+            //Демонстрация реализации garbageCollector
+            case "alloc" -> (ctx, a) -> {
+                // Демонстрация работы GC - создаем много объектов
+                List<String> garbage = new ArrayList<>();
+                for (int i = 0; i < 100000; i++) {
+                    garbage.add("String object " + i);
+                }
+                System.out.println("Создано 100000 объектов. GC должен их очистить.");
+                return Outcome.ok();
+            };
 
-        commands.put("gc-force", (ctx, a) -> {
-            System.out.println("Принудительный вызов Garbage Collector...");
+            case "gc-force" -> (ctx, a) -> {
+                System.out.println("Принудительный вызов Garbage Collector...");
 
-            Runtime rt = Runtime.getRuntime();
-            long beforeMemory = rt.totalMemory() - rt.freeMemory();
-            System.out.println("Используемая память ДО очистки: " + beforeMemory / 1024 + " KB");
+                Runtime rt = Runtime.getRuntime();
+                long beforeMemory = rt.totalMemory() - rt.freeMemory();
+                System.out.println("Используемая память ДО очистки: " + beforeMemory / 1024 + " KB");
 
-            // Принудительно вызываем GC
-            System.gc();
+                // Принудительно вызываем GC
+                System.gc();
 
-            // Даем время на выполнение
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+                // Даем время на выполнение
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
 
-            long afterMemory = rt.totalMemory() - rt.freeMemory();
-            System.out.println("Используемая память ПОСЛЕ очистки: " + afterMemory / 1024 + " KB");
-            System.out.println("Очищено: " + (beforeMemory - afterMemory) / 1024 + " KB");
-        });
+                long afterMemory = rt.totalMemory() - rt.freeMemory();
+                System.out.println("Используемая память ПОСЛЕ очистки: " + afterMemory / 1024 + " KB");
+                System.out.println("Очищено: " + (beforeMemory - afterMemory) / 1024 + " KB");
+                return Outcome.ok();
+            };
 
-        commands.put("demo-errors", (ctx, a) -> {
-            System.out.println("=== Демонстрация ошибок ===");
+            case "demo-errors" -> (ctx, a) -> {
+                System.out.println("=== Демонстрация ошибок ===");
 
-            // Ошибка выполнения (Runtime Exception)
-            System.out.println("1. Ошибка выполнения (ArithmeticException):");
-            try {
-                int result = 10 / 0; // Деление на ноль
-            } catch (ArithmeticException e) {
-                System.out.println("   Поймано: " + e.getClass().getSimpleName() + " - " + e.getMessage());
-            }
+                // Ошибка выполнения (Runtime Exception)
+                System.out.println("1. Ошибка выполнения (ArithmeticException):");
+                try {
+                    int result = 10 / 0; // Деление на ноль
+                } catch (ArithmeticException e) {
+                    System.out.println("   Поймано: " + e.getClass().getSimpleName() + " - " + e.getMessage());
+                }
 
-            // Ошибка компиляции
+                // Ошибка компиляции
+
+                System.out.println("2. Ошибка компиляции (пример):");
+                System.out.println("   // String x = 123; // Не компилируется: несовместимые типы");
+                System.out.println("   Эта ошибка обнаруживается на этапе компиляции");
+                return Outcome.ok();
+            };
+            case "look" -> (ctx, a) -> {
+                System.out.println(ctx.getCurrent().describe());
+                return Outcome.ok();
+            };
+
+            //Добавлена реализация команды move
+            case "move" -> (ctx, a) -> {
+                if (a.isEmpty()) {
+                    return Outcome.error("Укажите направление: north, south, east, west, up, down, ne, nw, se, sw");
+                }
 
-            System.out.println("2. Ошибка компиляции (пример):");
-            System.out.println("   // String x = 123; // Не компилируется: несовместимые типы");
-            System.out.println("   Эта ошибка обнаруживается на этапе компиляции");
+                Direction direction = Direction.parse(a.getFirst());
+                if (direction == null) {
+                    return Outcome.error("Неизвестное направление: " + a.getFirst());
+                }
+                Room current = ctx.getCurrent();
+                Room nextRoom = current.getExit(direction);
 
-        });
-        commands.put("look", (ctx, a) -> System.out.println(ctx.getCurrent().describe()));
+                if (nextRoom == null) {
+                    return Outcome.error("Нет пути в направлении: " + direction.id());
+                }
 
-        //Добавлена реализация команды move
-        commands.put("move", (ctx, a) -> {
-            if (a.isEmpty()) {
-                throw new InvalidCommandException("Укажите направление: north, south, east, west");
-            }
+                // Проверяем, закрыта ли дверь
+                if (current.isDoorLocked(direction)) {
+                    return Outcome.error("Дверь в направлении " + direction.id() + " закрыта. Нужен ключ!");
+                }
 
-            String direction = a.getFirst().toLowerCase();
-            Room current = ctx.getCurrent();
-            Room nextRoom = current.getNeighbors().get(direction);
+                ctx.setCurrent(nextRoom);
+                System.out.println("Вы перешли в: " + nextRoom.getName());
+                System.out.println(nextRoom.describe());
+                return Outcome.ok();
+            };
 
-            if (nextRoom == null) {
-                throw new InvalidCommandException("Нет пути в направлении: " + direction);
-            }
+            //Реализация команды take
+            case "take" -> (ctx, a) -> {
+                if (a.isEmpty()) {
+                    return Outcome.error("Укажите название предмета. Пример: take Малое зелье");
+                }
 
-            // Проверяем, закрыта ли дверь
-            if (current.isDoorLocked(direction)) {
-                throw new InvalidCommandException("Дверь в направлении " + direction + " закрыта. Нужен ключ!");
-            }
+                // Объединяем все аргументы в одну строку
+                String itemName = String.join(" ", a);
+                System.out.println("Поиск предмета: '" + itemName + "'");
+
+                Room current = ctx.getCurrent();
+                Player player = ctx.getPlayer();
+
+                // Отладочная информация
+                System.out.println("Предметы в комнате: " +
+                        (current.getItems().isEmpty() ? "нет" :
+                                current.getItems().stream().map(Item::getName).collect(Collectors.joining(", "))));
+
+                // Ищем предмет в комнате (регистронезависимый поиск)
+                Optional<Item> foundItem = current.getItems().stream()
+                        .filter(item -> item.getName().equalsIgnoreCase(itemName))
+                        .findFirst();
+
+                if (foundItem.isEmpty()) {
+                    // Покажем какие предметы есть в комнате
+                    if (current.getItems().isEmpty()) {
+                        return Outcome.error("В комнате нет предметов");
+                    } else {
+                        String availableItems = current.getItems().stream()
+                                .map(Item::getName)
+                                .collect(Collectors.joining(", "));
+                        return Outcome.error("Предмет '" + itemName + "' не найден. Доступные предметы: " + availableItems);
+                    }
+                }
 
-            ctx.setCurrent(nextRoom);
-            System.out.println("Вы перешли в: " + nextRoom.getName());
-            System.out.println(nextRoom.describe());
-        });
+                Item item = foundItem.get();
+                current.removeItem(item);
+                player.getInventory().add(item);
+
+                System.out.println("Взято: " + item.getName());
+                return Outcome.ok();
+            };
+
+            case "debug" -> (ctx, a) -> {
+                Room current = ctx.getCurrent();
+                Player player = ctx.getPlayer();
+
+                System.out.println("=== ОТЛАДОЧНАЯ ИНФОРМАЦИЯ ===");
+                System.out.println("Комната: " + current.getName());
+                System.out.println("Предметы в комнате: " + current.getItems().size());
+                current.getItems().forEach(item ->
+                        System.out.println("  - '" + item.getName() + "' (класс: " + item.getClass().getSimpleName() + ")")
+                );
+                System.out.println("Игрок: " + player.getName());
+                System.out.println("Инвентарь: " + player.getInventory().size() + " предметов");
+                System.out.println("============================");
+                return Outcome.ok();
+            };
+
+            //Реализация инвентаря
+            case "inventory" -> (ctx, a) -> {
+                Player player = ctx.getPlayer();
+                List<Item> inventory = player.getInventory();
+
+                if (inventory.isEmpty()) {
+                    System.out.println("Инвентарь пуст");
+                    return Outcome.ok();
+                }
 
-        //Реализация команды take
-        commands.put("take", (ctx, a) -> {
-            if (a.isEmpty()) {
-                throw new InvalidCommandException("Укажите название предмета. Пример: take Малое зелье");
-            }
+                // Группировка по типу предмета с использованием Stream API
+                Map<String, List<Item>> groupedItems = inventory.stream()
+                        .collect(Collectors.groupingBy(item -> {
+                            if (item instanceof Potion) return "Potion";
+                            if (item instanceof Weapon) return "Weapon";
+                            if (item instanceof Key) return "Key";
+                            return "Other";
+                        }));
+
+                // Сортировка по названию типа с помощью стримов
+                groupedItems.entrySet().stream()
+                        .sorted(Map.Entry.comparingByKey())
+                        .forEach(entry -> {
+                            String type = entry.getKey();
+                            List<Item> items = entry.getValue();
+
+                            // Группировка по имени и подсчет количества
+                            Map<String, Long> itemCounts = items.stream()
+                                    .collect(Collectors.groupingBy(
+                                            Item::getName,
+                                            Collectors.counting()
+                                    ));
+
+                            // Вывод отсортированный по имени предмета
+                            itemCounts.entrySet().stream()
+                                    .sorted(Map.Entry.comparingByKey())
+                                    .forEach(itemEntry -> {
+                                        System.out.println("- " + type + " (" + itemEntry.getValue() + "): " + itemEntry.getKey());
+                                    });
+                        });
+                return Outcome.ok();
+            };
+
+            //Реализуем команду use
+            case "use" -> (ctx, a) -> {
+                if (a.isEmpty()) {
+                    return Outcome.error("Укажите название предмета");
+                }
 
-            // Объединяем все аргументы в одну строку
-            String itemName = String.join(" ", a);
-            System.out.println("Поиск предмета: '" + itemName + "'");
-
-            Room current = ctx.getCurrent();
-            Player player = ctx.getPlayer();
-
-            // Отладочная информация
-            System.out.println("Предметы в комнате: " +
-                    (current.getItems().isEmpty() ? "нет" :
-                            current.getItems().stream().map(Item::getName).collect(Collectors.joining(", "))));
-
-            // Ищем предмет в комнате (регистронезависимый поиск)
-            Optional<Item> foundItem = current.getItems().stream()
-                    .filter(item -> item.getName().equalsIgnoreCase(itemName))
-                    .findFirst();
-
-            if (foundItem.isEmpty()) {
-                // Покажем какие предметы есть в комнате
-                if (current.getItems().isEmpty()) {
-                    throw new InvalidCommandException("В комнате нет предметов");
-                } else {
-                    String availableItems = current.getItems().stream()
-                            .map(Item::getName)
-                            .collect(Collectors.joining(", "));
-                    throw new InvalidCommandException("Предмет '" + itemName + "' не найден. Доступные предметы: " + availableItems);
+                String itemName = String.join(" ", a);
+                Player player = ctx.getPlayer();
+
+                // Ищем предмет в инвентаре (регистронезависимый поиск)
+                Optional<Item> foundItem = player.getInventory().stream()
+                        .filter(item -> item.getName().equalsIgnoreCase(itemName))
+                        .findFirst();
+
+                if (foundItem.isEmpty()) {
+                    // Покажем что есть в инвентаре
+                    if (player.getInventory().isEmpty()) {
+                        return Outcome.error("Инвентарь пуст");
+                    } else {
+                        String inventoryItems = player.getInventory().stream()
+                                .map(Item::getName)
+                                .collect(Collectors.joining(", "));
+                        return Outcome.error("Предмет не найден в инвентаре. Ваш инвентарь: " + inventoryItems);
+                    }
                 }
-            }
 
-            Item item = foundItem.get();
-            current.getItems().remove(item);
-            player.getInventory().add(item);
-
-            System.out.println("Взято: " + item.getName());
-        });
-
-        commands.put("debug", (ctx, a) -> {
-            Room current = ctx.getCurrent();
-            Player player = ctx.getPlayer();
-
-            System.out.println("=== ОТЛАДОЧНАЯ ИНФОРМАЦИЯ ===");
-            System.out.println("Комната: " + current.getName());
-            System.out.println("Предметы в комнате: " + current.getItems().size());
-            current.getItems().forEach(item ->
-                    System.out.println("  - '" + item.getName() + "' (класс: " + item.getClass().getSimpleName() + ")")
-            );
-            System.out.println("Игрок: " + player.getName());
-            System.out.println("Инвентарь: " + player.getInventory().size() + " предметов");
-            System.out.println("============================");
-        });
-
-        //Реализация инвентаря
-        commands.put("inventory", (ctx, a) -> {
-            Player player = ctx.getPlayer();
-            List<Item> inventory = player.getInventory();
-
-            if (inventory.isEmpty()) {
-                System.out.println("Инвентарь пуст");
-                return;
-            }
+                Item item = foundItem.get();
+                System.out.println("Используется: " + item.getName());
+                item.apply(ctx);
+                return Outcome.ok();
+            };
 
-            // Группировка по типу предмета с использованием Stream API
-            Map<String, List<Item>> groupedItems = inventory.stream()
-                    .collect(Collectors.groupingBy(item -> {
-                        if (item instanceof Potion) return "Potion";
-                        if (item instanceof Weapon) return "Weapon";
-                        if (item instanceof Key) return "Key";
-                        return "Other";
-                    }));
-
-            // Сортировка по названию типа с помощью стримов
-            groupedItems.entrySet().stream()
-                    .sorted(Map.Entry.comparingByKey())
-                    .forEach(entry -> {
-                        String type = entry.getKey();
-                        List<Item> items = entry.getValue();
-
-                        // Группировка по имени и подсчет количества
-                        Map<String, Long> itemCounts = items.stream()
-                                .collect(Collectors.groupingBy(
-                                        Item::getName,
-                                        Collectors.counting()
-                                ));
-
-                        // Вывод отсортированный по имени предмета
-                        itemCounts.entrySet().stream()
-                                .sorted(Map.Entry.comparingByKey())
-                                .forEach(itemEntry -> {
-                                    System.out.println("- " + type + " (" + itemEntry.getValue() + "): " + itemEntry.getKey());
-                                });
-                    });
-        });
-
-        //Реализуем команду use
-        commands.put("use", (ctx, a) -> {
-            if (a.isEmpty()) {
-                throw new InvalidCommandException("Укажите название предмета");
-            }
+            //Реализация битвы
+            case "fight" -> (ctx, a) -> {
+                Room current = ctx.getCurrent();
+                Player player = ctx.getPlayer();
+                Monster monster = current.getMonster();
 
-            String itemName = String.join(" ", a);
-            Player player = ctx.getPlayer();
-
-            // Ищем предмет в инвентаре (регистронезависимый поиск)
-            Optional<Item> foundItem = player.getInventory().stream()
-                    .filter(item -> item.getName().equalsIgnoreCase(itemName))
-                    .findFirst();
-
-            if (foundItem.isEmpty()) {
-                // Покажем что есть в инвентаре
-                if (player.getInventory().isEmpty()) {
-                    throw new InvalidCommandException("Инвентарь пуст");
-                } else {
-                    String inventoryItems = player.getInventory().stream()
-                            .map(Item::getName)
-                            .collect(Collectors.joining(", "));
-                    throw new InvalidCommandException("Предмет не найден в инвентаре. Ваш инвентарь: " + inventoryItems);
+                if (monster == null) {
+                    return Outcome.error("В этой комнате нет монстра");
                 }
-            }
 
-            Item item = foundItem.get();
-            System.out.println("Используется: " + item.getName());
-            item.apply(ctx);
-        });
+                System.out.println("Начинается бой с " + monster.getName());
+
+                // Цикл боя
+                while (player.getHp() > 0 && monster.getHp() > 0) {
+                    // Ход игрока
+                    System.out.println("Вы бьёте " + monster.getName() + " на " + player.getAttack() + ".");
+                    monster.setHp(monster.getHp() - player.getAttack());
+                    System.out.println("HP монстра: " + Math.max(monster.getHp(), 0));
+
+                    if (monster.getHp() <= 0) {
+                        System.out.println("Монстр побежден!");
+                        // Монстр выпадает лут
+                        if (Math.random() > 0.5) {
+                            Item loot = new Potion("Зелье из дропа", 3);
+                            current.addItem(loot);
+                            System.out.println("Монстр выронил: " + loot.getName());
+                        }
+                        current.setMonster(null);
+                        monster.release();
+                        ctx.addScore(10); // Бонус за победу
+                        break;
+                    }
 
-        //Реализация битвы
-        commands.put("fight", (ctx, a) -> {
-            Room current = ctx.getCurrent();
-            Player player = ctx.getPlayer();
-            Monster monster = current.getMonster();
+                    // Ход монстра
+                    int monsterDamage = monster.getLevel();
+                    System.out.println("Монстр отвечает на " + monsterDamage + ".");
+                    player.setHp(player.getHp() - monsterDamage);
+                    System.out.println("Ваше HP: " + Math.max(player.getHp(), 0));
 
-            if (monster == null) {
-                throw new InvalidCommandException("В этой комнате нет монстра");
-            }
+                    if (player.getHp() <= 0) {
+                        System.out.println("Вы погибли! Игра окончена.");
+                        return Outcome.end();
+                    }
 
-            System.out.println("Начинается бой с " + monster.getName());
-
-            // Цикл боя
-            while (player.getHp() > 0 && monster.getHp() > 0) {
-                // Ход игрока
-                System.out.println("Вы бьёте " + monster.getName() + " на " + player.getAttack() + ".");
-                monster.setHp(monster.getHp() - player.getAttack());
-                System.out.println("HP монстра: " + Math.max(monster.getHp(), 0));
-
-                if (monster.getHp() <= 0) {
-                    System.out.println("Монстр побежден!");
-                    // Монстр выпадает лут
-                    if (Math.random() > 0.5) {
-                        Item loot = new Potion("Зелье из дропа", 3);
-                        current.getItems().add(loot);
-                        System.out.println("Монстр выронил: " + loot.getName());
+                    // Пауза между раундами
+                    System.out.flush();
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
                     }
-                    current.setMonster(null);
-                    ctx.addScore(10); // Бонус за победу
-                    break;
                 }
-
-                // Ход монстра
-                int monsterDamage = monster.getLevel();
-                System.out.println("Монстр отвечает на " + monsterDamage + ".");
-                player.setHp(player.getHp() - monsterDamage);
-                System.out.println("Ваше HP: " + Math.max(player.getHp(), 0));
-
-                if (player.getHp() <= 0) {
-                    System.out.println("Вы погибли! Игра окончена.");
-                    System.exit(0);
+                return Outcome.ok();
+            };
+
+            //Реализация команды About
+            case "about" -> (ctx, a) -> {
+                System.out.println("================================");
+                System.out.println("|         DUNGEON MINI         |");
+                System.out.println("|------------------------------|");
+                System.out.println("| Версия игры: 1.0             |");
+                System.out.println("| Java: " + System.getProperty("java.version") + "                 |");
+                System.out.println("| " + System.getProperty("java.vendor") + "            |");
+                System.out.println("|                              |");
+                System.out.println("| Разработано для обучения     |");
+                System.out.println("================================");
+                return Outcome.ok();
+            };
+
+            case "save" -> (ctx, a) -> {
+                String slot = a.isEmpty() ? SaveLoad.DEFAULT_SLOT : String.join(" ", a);
+                // Хранилище открывается здесь, а не в фоне: ошибка открытия должна дойти до игрока
+                try {
+                    SaveLoad.store();
+                } catch (UncheckedIOException e) {
+                    return storeError(e);
                 }
-
-                // Пауза между раундами
+                // Снимок должен включать очки уже выполненных команд пакета
+                addPendingScore(ctx);
+                autoSaver().requestSave(ctx, slot, true);
+                System.out.println("Сохранение в слот '" + slot + "' запущено в фоне: " + SaveLoad.STORE.toAbsolutePath());
+                return Outcome.ok();
+            };
+            case "load" -> (ctx, a) -> {
+                if (autoSaver != null) autoSaver.awaitIdle();
+                // Очки команд до загрузки принадлежат прежней игре, а не загруженной
+                addPendingScore(ctx);
                 try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    SaveLoad.load(ctx, a.isEmpty() ? SaveLoad.DEFAULT_SLOT : String.join(" ", a));
+                } catch (UncheckedIOException e) {
+                    return storeError(e);
                 }
-            }
-        });
-
-        //Реализация команды About
-        commands.put("about", (ctx, a) -> {
-            System.out.println("================================");
-            System.out.println("|         DUNGEON MINI         |");
-            System.out.println("|------------------------------|");
-            System.out.println("| Версия игры: 1.0             |");
-            System.out.println("| Java: " + System.getProperty("java.version") + "                 |");
-            System.out.println("| " + System.getProperty("java.vendor") + "            |");
-            System.out.println("|                              |");
-            System.out.println("| Разработано для обучения     |");
-            System.out.println("================================");
-        });
-
-        commands.put("save", (ctx, a) -> SaveLoad.save(ctx));
-        commands.put("load", (ctx, a) -> SaveLoad.load(ctx));
-        commands.put("scores", (ctx, a) -> SaveLoad.printScores());
-        commands.put("exit", (ctx, a) -> {
-            System.out.println("+-------------------------------+");
-            System.out.println("|    До новых встреч, герой!   |");
-            System.out.println("|  Подземелья ждут твоего      |");
-            System.out.println("|      возвращения...          |");
-            System.out.println("+-------------------------------+");
-            System.exit(0);
-        });
+                return Outcome.ok();
+            };
+            case "find" -> (ctx, a) -> {
+                if (a.isEmpty()) return Outcome.error("Укажите, что искать. Пример: find зелье");
+                String query = String.join(" ", a);
+                WorldIndex index = ctx.getIndex();
+                boolean found = false;
+                for (String match : index.search(query, 10)) {
+                    found |= printLocations(ctx, "Предмет", match, index.roomsWithItem(match));
+                    found |= printLocations(ctx, "Монстр", match, index.roomsWithMonster(match));
+                }
+                String q = WorldIndex.normalize(query);
+                for (Item item : ctx.getPlayer().getInventory()) {
+                    if (WorldIndex.normalize(item.getName()).contains(q)) {
+                        System.out.println("В инвентаре: " + item.getName());
+                        found = true;
+                    }
+                }
+                if (!found) return Outcome.error("Ничего не найдено: " + query);
+                return Outcome.ok();
+            };
+            case "macro" -> (ctx, a) -> defineMacro(a);
+            case "batch" -> (ctx, a) -> {
+                if (a.isEmpty()) return Outcome.error("Укажите файл сценария. Пример: batch script.txt");
+                return runScript(Paths.get(String.join(" ", a)));
+            };
+            case "deltas" -> (ctx, a) -> {
+                if (!a.isEmpty() && a.getFirst().equalsIgnoreCase("watch")) {
+                    if (consoleWatcher == null) {
+                        consoleWatcher = spectators().subscribe(4);
+                        System.out.println("Поток дельт включён");
+                    } else {
+                        consoleWatcher.close();
+                        consoleWatcher = null;
+                        System.out.println("Поток дельт выключен");
+                    }
+                }
+                System.out.println(spectators().stats());
+                return Outcome.ok();
+            };
+            case "slots" -> (ctx, a) -> {
+                if (autoSaver != null) autoSaver.awaitIdle();
+                try {
+                    SaveLoad.printSlots(ctx);
+                } catch (UncheckedIOException e) {
+                    return storeError(e);
+                }
+                return Outcome.ok();
+            };
+            case "scores" -> (ctx, a) -> {
+                SaveLoad.printScores();
+                return Outcome.ok();
+            };
+            case "stats" -> (ctx, a) -> {
+                // Аргументы вида ГГГГ-ММ-ДД — границы окна (первая — с, вторая — по), остальное — имя игрока
+                LocalDate from = null, to = null;
+                List<String> nameParts = new ArrayList<>();
+                for (String arg : a) {
+                    if (!arg.matches("\\d{4}-\\d{2}-\\d{2}")) {
+                        nameParts.add(arg);
+                        continue;
+                    }
+                    LocalDate date;
+                    try {
+                        date = LocalDate.parse(arg);
+                    } catch (DateTimeParseException e) {
+                        return Outcome.error("Неверная дата: " + arg);
+                    }
+                    if (from == null) from = date;
+                    else to = date;
+                }
+                if (!Files.exists(SaveLoad.SCORES)) {
+                    System.out.println("Пока нет результатов.");
+                    return Outcome.ok();
+                }
+                ScoreStats.print(SaveLoad.SCORES, from, to, nameParts.isEmpty() ? null : String.join(" ", nameParts));
+                return Outcome.ok();
+            };
+            case "startup" -> (ctx, a) -> {
+                System.out.println(StartupProfile.report());
+                System.out.println("Трассировка WorldInfo:");
+                WorldInfo.trace().forEach(line -> System.out.println("  " + line));
+                return Outcome.ok();
+            };
+            case "exit" -> (ctx, a) -> {
+                System.out.println("+-------------------------------+");
+                System.out.println("|    До новых встреч, герой!   |");
+                System.out.println("|  Подземелья ждут твоего      |");
+                System.out.println("|      возвращения...          |");
+                System.out.println("+-------------------------------+");
+                return Outcome.end();
+            };
+            default -> null;
+        };
+    }
+
+    // Печатает до пяти комнат из индекса; false, если имя в этой категории нигде не встречается
+    private static boolean printLocations(GameState ctx, String kind, String name, int[] roomIds) {
+        if (roomIds.length == 0) return false;
+        StringBuilder sb = new StringBuilder(kind).append(" '").append(name).append("': ");
+        for (int i = 0; i < Math.min(5, roomIds.length); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(ctx.getRooms().get(roomIds[i]).getName());
+        }
+        if (roomIds.length > 5) sb.append(" и ещё ").append(roomIds.length - 5);
+        System.out.println(sb);
+        return true;
     }
 
-    private void bootstrapWorld() {
-        Player hero = new Player("Герой", 20, 5);
+    // macro — список, macro имя — показать, macro имя = команды — определить, macro имя = — удалить
+    private Outcome defineMacro(List<String> a) {
+        if (a.isEmpty()) {
+            if (macros.isEmpty()) System.out.println("Макросов нет");
+            macros.forEach((name, body) -> System.out.println(name + " = " + body));
+            return Outcome.ok();
+        }
+        String name = a.getFirst().toLowerCase(Locale.ROOT);
+        if (a.size() == 1) {
+            String body = macros.get(name);
+            if (body == null) return Outcome.error("Макрос не найден: " + name);
+            System.out.println(name + " = " + body);
+            return Outcome.ok();
+        }
+        if (!a.get(1).equals("=")) return Outcome.error("Формат: macro имя = команда1; команда2");
+        if (command(name) != null) return Outcome.error("Имя макроса совпадает с командой: " + name);
+
+        String body = String.join(" ", a.subList(2, a.size()));
+        if (body.isBlank()) {
+            macros.remove(name);
+            System.out.println("Макрос удалён: " + name);
+        } else {
+            macros.put(name, body);
+            System.out.println("Макрос сохранён: " + name);
+        }
+        return Outcome.ok();
+    }
+
+    // Новый мир в начальном состоянии — для этой игры и для сессий, поднимаемых SessionManager
+    static GameState newWorld() {
+        GameState s = new GameState();
+        bootstrapWorld(s);
+        return s;
+    }
+
+    private static void bootstrapWorld(GameState state) {
+        Player hero = new Player(state.getEntities(), "Герой", 20, 5);
         state.setPlayer(hero);
 
         Room square = new Room("Площадь", "Каменная площадь с фонтаном.");
@@ -351,22 +576,26 @@ public class Game {
         //Добавление новой комнаты
         Room throneRoom = new Room("Зал великой славы",
                 "Величественный зал с золотым троном. На троне лежит Меч легендарного героя!");
-        square.getNeighbors().put("north", forest);
-        forest.getNeighbors().put("south", square);
-        forest.getNeighbors().put("east", cave);
-        cave.getNeighbors().put("west", forest);
-        cave.getNeighbors().put("north", throneRoom);
-        throneRoom.getNeighbors().put("south", cave);
+        square.setExit(Direction.NORTH, forest);
+        forest.setExit(Direction.SOUTH, square);
+        forest.setExit(Direction.EAST, cave);
+        cave.setExit(Direction.WEST, forest);
+        cave.setExit(Direction.NORTH, throneRoom);
+        throneRoom.setExit(Direction.SOUTH, cave);
 
         // Закрываем дверь из пещеры в тронный зал
-        cave.lockDoor("north");
-
-        forest.getItems().add(new Potion("Малое зелье", 5));
-        forest.setMonster(new Monster("Волк", 1, 8));
-        cave.setMonster(new Monster("Гоблин", 2, 12));
-        cave.getItems().add(new Key("Старый ключ"));
-        throneRoom.getItems().add(new Weapon("Меч легендарного героя", 10));
-
+        cave.lockDoor(Direction.NORTH);
+
+        forest.addItem(new Potion("Малое зелье", 5));
+        forest.setMonster(new Monster(state.getEntities(), "Волк", 1, 8));
+        cave.setMonster(new Monster(state.getEntities(), "Гоблин", 2, 12));
+        cave.addItem(new Key("Старый ключ"));
+        throneRoom.addItem(new Weapon("Меч легендарного героя", 10));
+
+        state.addRoom(square);
+        state.addRoom(forest);
+        state.addRoom(cave);
+        state.addRoom(throneRoom);
         state.setCurrent(square);
     }
 
@@ -396,48 +625,175 @@ public class Game {
     }
 
     public void run() {
+        bufferConsole();
         System.out.println("=================================");
         System.out.println("|         DUNGEON MINI         |");
         System.out.println("|    Подземные приключения     |");
         System.out.println("=================================");
         System.out.println("Введите 'help' для помощи");
         System.out.println();
-
+        StartupProfile.mark("prompt");
 
         try (BufferedReader in = new BufferedReader(new InputStreamReader(System.in))) {
             while (true) {
                 System.out.print("> ");
+                System.out.flush();
                 String line = in.readLine();
                 if (line == null) break;
-                line = line.trim();
-                if (line.isEmpty()) continue;
-                List<String> parts = Arrays.asList(line.split("\s+"));
-                String cmd = parts.getFirst().toLowerCase(Locale.ROOT);
-                List<String> args = parts.subList(1, parts.size());
-
-                Command c = commands.get(cmd);
-                try {
-                    if (commands.get(cmd) == null && isRussianLayoutMistake(cmd)) {
-                        String correctCmd = fixKeyboardLayout(cmd);
-                        if (commands.get(correctCmd) != null) {
-                            throw new InvalidCommandException(
-                                    "Команда '" + cmd + "' не найдена. " +
-                                            "Возможно, вы имели в виду '" + correctCmd + "'? " +
-                                            "Проверьте раскладку клавиатуры!"
-                            );
-                        }
-                    }
-                    if (c == null) throw new InvalidCommandException("Неизвестная команда: " + cmd);
-                    c.execute(state, args);
-                    state.addScore(1);
-                } catch (InvalidCommandException e) {
-                    System.out.println("Ошибка: " + e.getMessage());
-                } catch (Exception e) {
-                    System.out.println("Непредвиденная ошибка: " + e.getClass().getSimpleName() + ": " + e.getMessage());
-                }
+                Outcome result = executeLine(line, 0);
+                finishBatch();
+                if (result.isEnd()) break;
             }
         } catch (IOException e) {
             System.out.println("Ошибка ввода/вывода: " + e.getMessage());
+        } finally {
+            System.out.flush();
+            if (autoSaver != null) autoSaver.close();
+        }
+    }
+
+    // Пакетный режим: весь сценарий выполняется как один пакет — один сброс вывода и одно начисление очков
+    public void runBatch(Path script) {
+        bufferConsole();
+        try {
+            report(runScript(script));
+            finishBatch();
+        } finally {
+            System.out.flush();
+            if (autoSaver != null) autoSaver.close();
+        }
+    }
+
+    // Вывод копится в буфере и сбрасывается один раз после строки или пакета, а не после каждой println
+    private static void bufferConsole() {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+                false, console.charset()));
+    }
+
+    private Outcome runScript(Path script) {
+        if (scriptDepth >= MAX_MACRO_DEPTH) return Outcome.error("Слишком глубокая вложенность сценариев");
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(script);
+        } catch (IOException e) {
+            return Outcome.error("Не удалось прочитать сценарий " + script + ": " + e.getMessage());
+        }
+        scriptDepth++;
+        try {
+            for (String line : lines) {
+                if (line.isBlank() || line.trim().startsWith("#")) continue;
+                if (executeLine(line, 0).isEnd()) return Outcome.end();
+            }
+            return Outcome.ok();
+        } finally {
+            scriptDepth--;
+        }
+    }
+
+    // Строка может содержать несколько команд через ';' и вызовы макросов.
+    // Очки и автосохранение не трогаются здесь — это делает finishBatch один раз на пакет.
+    // Ошибки печатаются сразу, наружу уходит только признак конца сессии
+    private Outcome executeLine(String line, int depth) {
+        line = line.trim();
+        if (line.isEmpty()) return Outcome.ok();
+        // Тело макроса само содержит ';', поэтому определение макроса не режем
+        if (line.toLowerCase(Locale.ROOT).startsWith("macro ")) {
+            return report(executeCommand(line, depth));
+        }
+        for (String part : line.split(";")) {
+            if (!part.isBlank() && report(executeCommand(part.trim(), depth)).isEnd()) return Outcome.end();
+        }
+        return Outcome.ok();
+    }
+
+    private static Outcome report(Outcome result) {
+        if (result.isError()) System.out.println("Ошибка: " + result.message());
+        return result;
+    }
+
+    private Outcome executeCommand(String text, int depth) {
+        List<String> parts = Arrays.asList(text.split("\\s+"));
+        String cmd = parts.getFirst().toLowerCase(Locale.ROOT);
+        List<String> args = parts.subList(1, parts.size());
+
+        Command c = command(cmd);
+        if (c == null && macros.containsKey(cmd)) {
+            if (depth >= MAX_MACRO_DEPTH) return Outcome.error("Слишком глубокая вложенность макросов: " + cmd);
+            return executeLine(macros.get(cmd), depth + 1);
+        }
+        if (c == null && isRussianLayoutMistake(cmd)) {
+            String correctCmd = fixKeyboardLayout(cmd);
+            if (command(correctCmd) != null) {
+                return Outcome.error(
+                        "Команда '" + cmd + "' не найдена. " +
+                                "Возможно, вы имели в виду '" + correctCmd + "'? " +
+                                "Проверьте раскладку клавиатуры!"
+                );
+            }
+        }
+        if (c == null) return Outcome.error("Неизвестная команда: " + cmd);
+
+        Outcome result;
+        try {
+            result = c.execute(state(), args);
+        } catch (InvalidCommandException e) {
+            result = Outcome.error(e.getMessage());
+        } catch (RuntimeException e) {
+            // Сюда попадают только настоящие сбои, а не ошибки ввода
+            result = Outcome.error("Непредвиденная ошибка: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        if (result.isOk()) executedInBatch++;
+        publishDelta();
+        return result;
+    }
+
+    private void finishBatch() {
+        if (executedInBatch > 0) {
+            GameState ctx = state();
+            addPendingScore(ctx);
+            autoSaver().tick(ctx);
+            publishDelta();
+        }
+        if (consoleWatcher != null) {
+            for (byte[] d; (d = consoleWatcher.poll()) != null; ) {
+                System.out.println("[дельта " + d.length + " байт] " + StateDelta.decode(d));
+            }
+        }
+        System.out.flush();
+    }
+
+    private void addPendingScore(GameState ctx) {
+        ctx.addScore(executedInBatch);
+        executedInBatch = 0;
+    }
+
+    // Подписка зрителя на поток дельт состояния этой сессии
+    public DeltaHub.Spectator spectate(int maxQueued) {
+        return spectators().subscribe(maxQueued);
+    }
+
+    private DeltaHub spectators() {
+        DeltaHub hub = spectators;
+        if (hub == null) {
+            synchronized (this) {
+                hub = spectators;
+                if (hub == null) spectators = hub = new DeltaHub();
+            }
+        }
+        return hub;
+    }
+
+    // Без зрителей дельта не строится: журнал изменений просто очищается,
+    // а подключившийся позже зритель всё равно начнёт с полного состояния
+    private void publishDelta() {
+        DeltaHub hub = spectators;
+        if (!worldReady || hub == null) return;
+        if (deltas == null) deltas = new DeltaTracker(state);
+        if (hub.isIdle()) {
+            deltas.skip();
+            return;
         }
+        hub.publish(deltas.next(state), () -> deltas.full(state));
     }
 }
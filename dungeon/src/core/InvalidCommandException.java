@@ -1,7 +1,8 @@
 package core;
 
+// Без стека и подавленных исключений: ошибки ввода часты, а стек для них бесполезен
 public class InvalidCommandException extends RuntimeException {
     public InvalidCommandException(String m) {
-        super(m);
+        super(m, null, false, false);
     }
 }
@@ -0,0 +1,34 @@
+package core;
+
+// Результат команды: успех, ошибка пользователя с сообщением или конец сессии.
+// Обычные ошибки ввода возвращаются значением, а не исключением — без захвата стека.
+public record Outcome(Kind kind, String message) {
+    public enum Kind { OK, ERROR, END }
+
+    private static final Outcome OK = new Outcome(Kind.OK, null);
+    private static final Outcome END = new Outcome(Kind.END, null);
+
+    public static Outcome ok() {
+        return OK;
+    }
+
+    public static Outcome error(String message) {
+        return new Outcome(Kind.ERROR, message);
+    }
+
+    public static Outcome end() {
+        return END;
+    }
+
+    public boolean isOk() {
+        return kind == Kind.OK;
+    }
+
+    public boolean isError() {
+        return kind == Kind.ERROR;
+    }
+
+    public boolean isEnd() {
+        return kind == Kind.END;
+    }
+}
@@ -3,119 +3,219 @@ package core;
 import model.*;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class SaveLoad {
-    private static final Path SAVE = Paths.get("save.txt");
-    private static final Path SCORES = Paths.get("scores.csv");
-
-    public static void save(GameState s) {
-        try (BufferedWriter w = Files.newBufferedWriter(SAVE)) {
-            Player p = s.getPlayer();
-            w.write("player;" + p.getName() + ";" + p.getHp() + ";" + p.getAttack());
-            w.newLine();
+    // Старый одиночный файл сохранения: читается, если в хранилище ещё нет слота
+    private static final Path LEGACY_SAVE = Paths.get("save.txt");
+    static final Path STORE = Paths.get("saves.db");
+    static final Path SCORES = Paths.get("scores.csv");
+    public static final String DEFAULT_SLOT = "main";
+
+    private static SaveStore store;
+
+    // Хранилище открывается при первом сохранении или загрузке, а не при запуске игры
+    static synchronized SaveStore store() {
+        if (store == null) store = new SaveStore(STORE);
+        return store;
+    }
 
-            String inv = p.getInventory().stream()
-                    .map(i -> i.getClass().getSimpleName() + ":" + i.getName())
-                    .collect(Collectors.joining(","));
-            w.write("inventory;" + inv);
-            w.newLine();
+    static byte[] encode(SaveSnapshot s) {
+        StringBuilder head = new StringBuilder(256);
+        head.append("player;").append(s.player()).append(';').append(s.hp()).append(';').append(s.attack())
+                .append(System.lineSeparator());
+        head.append("inventory;").append(encodeItems(s.inventory())).append(System.lineSeparator());
+
+        // СОХРАНЯЕМ ТЕКУЩУЮ КОМНАТУ
+        head.append("room;").append(s.room()).append(System.lineSeparator());
+        head.append("roomid;").append(s.roomId()).append(System.lineSeparator());
+
+        // СОХРАНЯЕМ СЧЕТ
+        head.append("score;").append(s.score()).append(System.lineSeparator());
+
+        // Состояние комнат: монстр, закрытые двери, предметы; строки комнат кэшируются в снимке
+        byte[] headBytes = head.toString().getBytes(StandardCharsets.UTF_8);
+        int size = headBytes.length;
+        for (SaveSnapshot.RoomState r : s.rooms()) size += r.encoded().length;
+        byte[] out = Arrays.copyOf(headBytes, size);
+        int pos = headBytes.length;
+        for (SaveSnapshot.RoomState r : s.rooms()) {
+            byte[] line = r.encoded();
+            System.arraycopy(line, 0, out, pos, line.length);
+            pos += line.length;
+        }
+        return out;
+    }
 
-            // СОХРАНЯЕМ ТЕКУЩУЮ КОМНАТУ
-            w.write("room;" + s.getCurrent().getName());
-            w.newLine();
+    static byte[] encodeRoom(SaveSnapshot.RoomState r) {
+        return ("roomstate;" + r.name() + ";" + (r.monster() == null ? "-" : r.monster() + ":" + r.monsterLevel())
+                + ";" + r.monsterHp() + ";" + r.lockMask() + ";" + encodeItems(r.items()) + System.lineSeparator())
+                .getBytes(StandardCharsets.UTF_8);
+    }
 
-            // СОХРАНЯЕМ СЧЕТ
-            w.write("score;" + s.getScore());
-            w.newLine();
+    private static String encodeItems(List<Item> items) {
+        return items.stream().map(SaveLoad::encodeItem).collect(Collectors.joining(","));
+    }
 
-            System.out.println("Игра сохранена в " + SAVE.toAbsolutePath());
-            writeScore(p.getName(), s.getScore());
+    private static String encodeItem(Item i) {
+        int value = switch (i) {
+            case Potion p -> p.getHeal();
+            case Weapon w -> w.getBonus();
+            default -> 0;
+        };
+        return i.getClass().getSimpleName() + ":" + value + ":" + i.getName();
+    }
 
-        } catch (IOException e) {
-            throw new UncheckedIOException("Не удалось сохранить игру", e);
+    // Понимает и старый формат "Тип:Имя", и новый "Тип:значение:Имя"
+    static Item decodeItem(String tok) {
+        String[] itemData = tok.split(":", 3);
+        if (itemData.length < 2) return null;
+        String name = tok.substring(itemData[0].length() + 1);
+        Integer value = null;
+        if (itemData.length == 3 && itemData[1].matches("-?\\d+")) {
+            value = Integer.parseInt(itemData[1]);
+            name = itemData[2];
         }
+
+        return switch (itemData[0]) {
+            case "Potion" -> new Potion(name, value == null ? 5 : value);
+            case "Key" -> new Key(name);
+            case "Weapon" -> new Weapon(name, value == null ? 3 : value);
+            default -> null;
+        };
     }
 
-    private static void restoreCurrentRoom(GameState s, String roomName) {
-        // Простой способ - создаем комнаты как в bootstrapWorld()
-        Room square = new Room("Площадь", "Каменная площадь с фонтаном.");
-        Room forest = new Room("Лес", "Шелест листвы и птичий щебет.");
-        Room cave = new Room("Пещера", "Темно и сыро.");
+    private static void restoreRoom(GameState s, Room room, String[] f) {
+        // Монстра сначала убираем из комнаты (и из индекса мира), и только потом освобождаем его ячейку
+        if (f[1].equals("-")) {
+            Monster old = room.getMonster();
+            room.setMonster(null);
+            if (old != null) old.release();
+        } else {
+            String[] m = f[1].split(":", 2);
+            int hp = Integer.parseInt(f[2]);
+            Monster monster = room.getMonster();
+            if (monster == null || !monster.getName().equals(m[0])) {
+                room.setMonster(new Monster(s.getEntities(), m[0], m.length > 1 ? Integer.parseInt(m[1]) : 1, hp));
+                if (monster != null) monster.release();
+            } else {
+                monster.setHp(hp);
+            }
+        }
 
-        square.getNeighbors().put("north", forest);
-        forest.getNeighbors().put("south", square);
-        forest.getNeighbors().put("east", cave);
-        cave.getNeighbors().put("west", forest);
+        // Закрытые двери — битовая маска; старые сохранения хранили имена направлений
+        room.setLockMask(f[3].matches("\\d+") ? Integer.parseInt(f[3]) : Direction.parseMask(f[3]));
 
-        // Восстанавливаем предметы и монстров
-        forest.getItems().add(new Potion("Малое зелье", 5));
-        forest.setMonster(new Monster("Волк", 1, 8));
+        room.clearItems();
+        if (!f[4].isEmpty()) {
+            for (String tok : f[4].split(",")) {
+                Item item = decodeItem(tok);
+                if (item != null) room.addItem(item);
+            }
+        }
+    }
 
-        // Устанавливаем текущую комнату
-        switch (roomName) {
-            case "Лес" -> s.setCurrent(forest);
-            case "Пещера" -> s.setCurrent(cave);
-            default -> s.setCurrent(square); // По умолчанию площадь
+    public static void load(GameState s, String slot) {
+        byte[] data = store().get(s.getPlayer().getName(), slot);
+        try {
+            if (data != null) {
+                load(s, new BufferedReader(new StringReader(new String(data, StandardCharsets.UTF_8))));
+            } else if (slot.equals(DEFAULT_SLOT) && Files.exists(LEGACY_SAVE)) {
+                try (BufferedReader r = Files.newBufferedReader(LEGACY_SAVE)) {
+                    load(s, r);
+                }
+            } else {
+                System.out.println("Сохранение не найдено: " + slot);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось загрузить игру", e);
         }
     }
 
-    public static void load(GameState s) {
-        if (!Files.exists(SAVE)) {
-            System.out.println("Сохранение не найдено.");
+    public static void printSlots(GameState s) {
+        List<String> slots = store().slots(s.getPlayer().getName());
+        if (slots.isEmpty()) {
+            System.out.println("Сохранений пока нет.");
             return;
         }
+        System.out.println("Слоты сохранений (" + s.getPlayer().getName() + "): " + String.join(", ", slots));
+    }
 
-        try (BufferedReader r = Files.newBufferedReader(SAVE)) {
-            Map<String, String> map = new HashMap<>();
-            for (String line; (line = r.readLine()) != null; ) {
-                String[] parts = line.split(";", 2);
-                if (parts.length == 2) {
-                    map.put(parts[0], parts[1]);
-                }
-            }
+    private static void load(GameState s, BufferedReader r) throws IOException {
+        System.out.println("Игра загружена! Комната: " + restore(s, r));
+    }
 
-            Player p = s.getPlayer();
-
-            // Загружаем данные игрока
-            String[] playerData = map.getOrDefault("player", "Hero;10;3").split(";");
-            p.setName(playerData[0]);
-            p.setHp(Integer.parseInt(playerData[1]));
-            p.setAttack(Integer.parseInt(playerData[2]));
-
-            // Очищаем и загружаем инвентарь
-            p.getInventory().clear();
-            String inv = map.getOrDefault("inventory", "");
-            if (!inv.isBlank()) {
-                for (String tok : inv.split(",")) {
-                    String[] itemData = tok.split(":", 2);
-                    if (itemData.length < 2) continue;
-
-                    switch (itemData[0]) {
-                        case "Potion" -> p.getInventory().add(new Potion(itemData[1], 5));
-                        case "Key" -> p.getInventory().add(new Key(itemData[1]));
-                        case "Weapon" -> p.getInventory().add(new Weapon(itemData[1], 3));
-                        default -> {}
-                    }
-                }
-            }
+    // Применяет сохранение к миру без вывода в консоль; возвращает имя текущей комнаты из сохранения
+    static String restore(GameState s, byte[] data) {
+        try {
+            return restore(s, new BufferedReader(new StringReader(new String(data, StandardCharsets.UTF_8))));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            // ВОССТАНАВЛИВАЕМ ТЕКУЩУЮ КОМНАТУ
-            String roomName = map.getOrDefault("room", "Площадь");
-            restoreCurrentRoom(s, roomName);
+    private static String restore(GameState s, BufferedReader r) throws IOException {
+        Map<String, String> map = new HashMap<>();
+        List<String> roomStates = new ArrayList<>();
+        for (String line; (line = r.readLine()) != null; ) {
+            String[] parts = line.split(";", 2);
+            if (parts.length == 2) {
+                if (parts[0].equals("roomstate")) roomStates.add(parts[1]);
+                else map.put(parts[0], parts[1]);
+            }
+        }
 
-            // ВОССТАНАВЛИВАЕМ СЧЕТ
-            String scoreStr = map.getOrDefault("score", "0");
-            s.addScore(Integer.parseInt(scoreStr) - s.getScore()); // Устанавливаем точное значение
+        Player p = s.getPlayer();
+
+        // Загружаем данные игрока
+        String[] playerData = map.getOrDefault("player", "Hero;10;3").split(";");
+        p.setName(playerData[0]);
+        p.setHp(Integer.parseInt(playerData[1]));
+        p.setAttack(Integer.parseInt(playerData[2]));
+
+        // Очищаем и загружаем инвентарь
+        p.getInventory().clear();
+        String inv = map.getOrDefault("inventory", "");
+        if (!inv.isBlank()) {
+            for (String tok : inv.split(",")) {
+                Item item = decodeItem(tok);
+                if (item != null) p.getInventory().add(item);
+            }
+        }
 
-            System.out.println("Игра загружена! Комната: " + roomName);
+        // ВОССТАНАВЛИВАЕМ КОМНАТЫ И ТЕКУЩУЮ КОМНАТУ
+        // Строки комнат пишутся по порядку номеров, так что i-я строка — это комната i, а имя лишь сверяется
+        // (в сгенерированных мирах имена повторяются). Поиск по имени остаётся для сохранений другого мира
+        List<Room> rooms = s.getRooms();
+        Map<String, Room> byName = new HashMap<>();
+        for (int i = 0; i < roomStates.size(); i++) {
+            String[] f = roomStates.get(i).split(";", -1);
+            if (f.length < 5) continue;
+            Room room = roomAt(rooms, i, f[0], byName);
+            if (room != null) restoreRoom(s, room, f);
+        }
+        String roomName = map.getOrDefault("room", "Площадь");
+        String roomId = map.getOrDefault("roomid", "");
+        Room room = roomAt(rooms, roomId.matches("\\d+") ? Integer.parseInt(roomId) : -1, roomName, byName);
+        s.setCurrent(room != null ? room : rooms.getFirst()); // По умолчанию первая комната мира
+
+        // ВОССТАНАВЛИВАЕМ СЧЕТ
+        String scoreStr = map.getOrDefault("score", "0");
+        s.addScore(Integer.parseInt(scoreStr) - s.getScore()); // Устанавливаем точное значение
+        return roomName;
+    }
 
-        } catch (IOException e) {
-            throw new UncheckedIOException("Не удалось загрузить игру", e);
+    // Комната с номером id, если её имя совпадает, иначе первая комната с таким именем
+    private static Room roomAt(List<Room> rooms, int id, String name, Map<String, Room> byName) {
+        if (id >= 0 && id < rooms.size() && rooms.get(id).getName().equals(name)) return rooms.get(id);
+        if (byName.isEmpty()) {
+            for (Room r : rooms) byName.putIfAbsent(r.getName(), r);
         }
+        return byName.get(name);
     }
 
     public static void printScores() {
@@ -133,7 +233,7 @@ public class SaveLoad {
         }
     }
 
-    private static void writeScore(String player, int score) {
+    static void writeScore(String player, int score) {
         try {
             boolean header = !Files.exists(SCORES);
             try (BufferedWriter w = Files.newBufferedWriter(SCORES, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
@@ -0,0 +1,157 @@
+package core;
+
+import model.*;
+
+import java.util.*;
+
+// Неизменяемая копия состояния игры: снимается на потоке команд между командами,
+// а сериализуется уже в фоне. Предметы неизменяемы, поэтому копируются только ссылки на них,
+// а состояния комнат хранятся страницами, которые следующий снимок копирует только при изменении.
+public record SaveSnapshot(String player, int hp, int attack, List<Item> inventory,
+                           String room, int roomId, int score, List<RoomState> rooms) {
+
+    public static final class RoomState {
+        private final String name;
+        private final int version;
+        private final String monster;
+        private final int monsterLevel;
+        private final int monsterHp;
+        private final int lockMask;
+        private final List<Item> items;
+        // Строка сохранения комнаты; кодируется один раз и переиспользуется всеми снимками,
+        // которые разделяют это состояние, так что фоновая запись кодирует только изменённые комнаты
+        private volatile byte[] encoded;
+
+        private RoomState(String name, int version, String monster, int monsterLevel, int monsterHp,
+                          int lockMask, List<Item> items) {
+            this.name = name;
+            this.version = version;
+            this.monster = monster;
+            this.monsterLevel = monsterLevel;
+            this.monsterHp = monsterHp;
+            this.lockMask = lockMask;
+            this.items = items;
+        }
+
+        static RoomState of(Room r) {
+            Monster m = r.getMonster();
+            return new RoomState(r.getName(), r.getVersion(), m == null ? null : m.getName(),
+                    m == null ? 0 : m.getLevel(), m == null ? -1 : m.getHp(),
+                    r.getLockMask(), List.copyOf(r.getItems()));
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public int version() {
+            return version;
+        }
+
+        public String monster() {
+            return monster;
+        }
+
+        public int monsterLevel() {
+            return monsterLevel;
+        }
+
+        public int monsterHp() {
+            return monsterHp;
+        }
+
+        public int lockMask() {
+            return lockMask;
+        }
+
+        public List<Item> items() {
+            return items;
+        }
+
+        byte[] encoded() {
+            byte[] bytes = encoded;
+            if (bytes == null) encoded = bytes = SaveLoad.encodeRoom(this);
+            return bytes;
+        }
+
+        // Комната не менялась с прошлого снимка: версия та же, а HP монстра меняется без версии
+        boolean matches(Room r) {
+            Monster m = r.getMonster();
+            return version == r.getVersion() && name.equals(r.getName())
+                    && monsterHp == (m == null ? -1 : m.getHp());
+        }
+    }
+
+    // Полный снимок: обходит все комнаты мира
+    public static SaveSnapshot capture(GameState s) {
+        List<Room> world = s.getRooms();
+        RoomState[][] pages = new RoomState[RoomPages.pageCount(world.size())][];
+        for (Room r : world) RoomPages.set(pages, r.getId(), RoomState.of(r));
+        return of(s, new RoomPages(pages, world.size()));
+    }
+
+    // Снимок поверх previous: копируются только комнаты из журнала changes (и текущая) и их страницы,
+    // остальное разделяется с previous, так что цена снимка не зависит от размера мира.
+    // changes должен вестись с момента снятия previous
+    public static SaveSnapshot capture(GameState s, SaveSnapshot previous, RoomChanges changes) {
+        if (!(previous.rooms() instanceof RoomPages old)) return capture(s);
+        List<Room> world = s.getRooms();
+        RoomState[][] pages = Arrays.copyOf(old.pages, RoomPages.pageCount(world.size()));
+        boolean[] copied = new boolean[pages.length];
+        // Комнаты, добавленные после прошлого снимка, в журнал не попадали
+        for (int id = old.size; id < world.size(); id++) copyRoom(pages, copied, world.get(id));
+        changes.drain(r -> copyRoom(pages, copied, r));
+        if (s.getCurrent() != null && s.getCurrent().getId() >= 0) copyRoom(pages, copied, s.getCurrent());
+        return of(s, new RoomPages(pages, world.size()));
+    }
+
+    private static void copyRoom(RoomState[][] pages, boolean[] copied, Room r) {
+        int page = r.getId() / RoomPages.PAGE;
+        RoomState prev = pages[page] == null ? null : pages[page][r.getId() % RoomPages.PAGE];
+        if (prev != null && prev.matches(r)) return;
+        if (!copied[page]) {
+            pages[page] = pages[page] == null ? new RoomState[RoomPages.PAGE] : pages[page].clone();
+            copied[page] = true;
+        }
+        pages[page][r.getId() % RoomPages.PAGE] = RoomState.of(r);
+    }
+
+    private static SaveSnapshot of(GameState s, RoomPages rooms) {
+        Player p = s.getPlayer();
+        return new SaveSnapshot(p.getName(), p.getHp(), p.getAttack(), List.copyOf(p.getInventory()),
+                s.getCurrent().getName(), s.getCurrent().getId(), s.getScore(), rooms);
+    }
+
+    // Состояния комнат по номеру комнаты, страницами: страницы неизменяемы после снятия снимка
+    // и разделяются между последовательными снимками
+    private static final class RoomPages extends AbstractList<RoomState> {
+        static final int PAGE = 1024;
+        final RoomState[][] pages;
+        final int size;
+
+        RoomPages(RoomState[][] pages, int size) {
+            this.pages = pages;
+            this.size = size;
+        }
+
+        static int pageCount(int rooms) {
+            return (rooms + PAGE - 1) / PAGE;
+        }
+
+        static void set(RoomState[][] pages, int id, RoomState state) {
+            if (pages[id / PAGE] == null) pages[id / PAGE] = new RoomState[PAGE];
+            pages[id / PAGE][id % PAGE] = state;
+        }
+
+        @Override
+        public RoomState get(int index) {
+            Objects.checkIndex(index, size);
+            return pages[index / PAGE][index % PAGE];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
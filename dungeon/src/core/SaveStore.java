@@ -0,0 +1,431 @@
+package core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Хранилище сохранений: один файл с записями, которые только дописываются в конец,
+// плюс индекс в памяти "игрок -> слот -> позиция записи". Перезапись слота добавляет
+// новую запись, а старая становится мусором, который периодически вычищает компакция.
+//
+// Формат записи: magic, crc32, длина ключа, длина данных (-1 — удаление), ключ, данные.
+// CRC считается по всему, что идёт после поля crc.
+//
+// Общее хранилище (сохранения игр) могут одновременно открыть несколько процессов в одном каталоге:
+// каждая операция берёт блокировку соседнего файла ".lock" только на своё время и сначала догоняет
+// индекс — дочитывает записи, дописанные другими процессами. Компакция подменяет файл целиком, поэтому
+// в ".lock" хранится номер поколения файла: если он сменился, файл открывается и читается заново.
+// Каждая запись общего хранилища сбрасывается на диск.
+//
+// Частное хранилище (файл вытеснения сессий) принадлежит одному процессу всё время работы и на диск
+// не сбрасывается: это продолжение памяти, а не сохранения. Чтение из него не ждёт записи и компакцию —
+// они идут под отдельным замком writes, а замок индекса берут только на подмену.
+public final class SaveStore implements AutoCloseable {
+    private static final int MAGIC = 0x44534C54;
+    private static final int HEADER = 16;
+    private static final long COMPACT_MIN_GARBAGE = 1 << 20;
+    // Файлы, открытые в этой JVM: блокировки файлов действуют на процесс целиком, а закрытие любого
+    // канала к ".lock" снимает их все, поэтому второй экземпляр на тот же файл в одной JVM не открывается
+    private static final Set<Path> OPEN = ConcurrentHashMap.newKeySet();
+
+    private final Path file;
+    private final Path lockFile;
+    private final boolean shared;
+    private final FileChannel lockChannel;
+    // Порядок замков: writes, блокировка файла, затем this (индекс, канал, конец файла)
+    private final ReentrantLock writes = new ReentrantLock();
+    private FileChannel channel;
+    private long generation;
+    private final Map<String, Map<String, Slot>> index = new HashMap<>();
+    private long end;
+    private long liveBytes;
+    private int slotCount;
+    // После неудачной компакции следующая попытка — только когда файл вырастет вдвое
+    private long nextCompactAt;
+
+    private record Slot(long offset, int size) {
+    }
+
+    private interface Op<T> {
+        T run() throws IOException;
+    }
+
+    public SaveStore(Path file) {
+        this(file, true);
+    }
+
+    public SaveStore(Path file, boolean shared) {
+        this.file = file;
+        this.shared = shared;
+        lockFile = file.toAbsolutePath().normalize().resolveSibling(file.getFileName() + ".lock");
+        if (!OPEN.add(lockFile)) {
+            throw new IllegalStateException("Хранилище сохранений " + file + " уже открыто в этой игре");
+        }
+        FileChannel lockCh = null;
+        try {
+            lockCh = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            lockChannel = lockCh;
+            if (shared) {
+                FileLock lock = lockChannel.lock();
+                try {
+                    reopen();
+                } finally {
+                    lock.release();
+                }
+            } else {
+                // Частное хранилище держит блокировку до close()
+                if (lockChannel.tryLock() == null) throw new IOException("файл уже используется другим процессом");
+                reopen();
+            }
+        } catch (IOException e) {
+            closeQuietly(channel);
+            closeQuietly(lockCh);
+            OPEN.remove(lockFile);
+            throw new UncheckedIOException("Не удалось открыть хранилище сохранений " + file, e);
+        }
+    }
+
+    public void put(String player, String slot, byte[] data) {
+        modify("Не удалось записать сохранение", () -> {
+            write(player, slot, data);
+            return null;
+        });
+    }
+
+    public boolean remove(String player, String slot) {
+        return modify("Не удалось удалить сохранение", () -> {
+            synchronized (this) {
+                if (find(player, slot) == null) return false;
+            }
+            write(player, slot, null);
+            return true;
+        });
+    }
+
+    public byte[] get(String player, String slot) {
+        return read("Не удалось прочитать сохранение", () -> {
+            Slot s = find(player, slot);
+            if (s == null) return null;
+            ByteBuffer buf = ByteBuffer.allocate(s.size());
+            readFully(buf, s.offset());
+            buf.flip();
+            if (buf.getInt() != MAGIC || buf.getInt() != crc(buf, 8)) {
+                throw new IOException("повреждена запись слота " + player + "/" + slot);
+            }
+            int keyLen = buf.getInt();
+            int valueLen = buf.getInt();
+            byte[] data = new byte[valueLen];
+            buf.position(HEADER + keyLen).get(data);
+            return data;
+        });
+    }
+
+    public List<String> slots(String player) {
+        return read("Не удалось прочитать список сохранений", () -> {
+            Map<String, Slot> slots = index.get(player);
+            if (slots == null) return List.of();
+            List<String> names = new ArrayList<>(slots.keySet());
+            Collections.sort(names);
+            return names;
+        });
+    }
+
+    public int size() {
+        return read("Не удалось прочитать список сохранений", () -> slotCount);
+    }
+
+    public long fileSize() {
+        return read("Не удалось прочитать список сохранений", () -> end);
+    }
+
+    // Изменение: под writes и блокировкой файла; замок индекса write берёт сам и ненадолго
+    private <T> T modify(String error, Op<T> op) {
+        writes.lock();
+        try {
+            FileLock lock = lockFile();
+            try {
+                return op.run();
+            } finally {
+                if (lock != null) lock.release();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(error, e);
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    // Чтение общего хранилища тоже идёт под writes: две блокировки одного файла в одной JVM пересекаются.
+    // Частное хранилище читается под одним замком индекса
+    private <T> T read(String error, Op<T> op) {
+        if (shared) writes.lock();
+        try {
+            FileLock lock = lockFile();
+            try {
+                synchronized (this) {
+                    return op.run();
+                }
+            } finally {
+                if (lock != null) lock.release();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(error, e);
+        } finally {
+            if (shared) writes.unlock();
+        }
+    }
+
+    // Блокировка общего файла на одну операцию; под ней индекс догоняет изменения других процессов.
+    // У частного хранилища блокировка уже взята при открытии — null
+    private FileLock lockFile() throws IOException {
+        if (!shared) return null;
+        FileLock lock = lockChannel.lock();
+        try {
+            synchronized (this) {
+                if (readGeneration() != generation) {
+                    reopen();
+                } else {
+                    long size = channel.size();
+                    if (size > end) scan(end);
+                    else if (size < end) reopen();
+                }
+            }
+            return lock;
+        } catch (IOException | RuntimeException e) {
+            lock.release();
+            throw e;
+        }
+    }
+
+    private void reopen() throws IOException {
+        closeQuietly(channel);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        generation = readGeneration();
+        index.clear();
+        liveBytes = 0;
+        slotCount = 0;
+        end = 0;
+        scan(0);
+    }
+
+    private long readGeneration() throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(Long.BYTES);
+        while (buf.hasRemaining()) {
+            if (lockChannel.read(buf, buf.position()) < 0) return 0;
+        }
+        return buf.getLong(0);
+    }
+
+    private Slot find(String player, String slot) {
+        Map<String, Slot> slots = index.get(player);
+        return slots == null ? null : slots.get(slot);
+    }
+
+    // Под writes: канал и конец файла меняет только держатель writes, поэтому сама запись идёт
+    // без замка индекса, а читатели видят новую запись после apply
+    private void write(String player, String slot, byte[] data) throws IOException {
+        byte[] key = key(player, slot);
+        int size = HEADER + key.length + (data == null ? 0 : data.length);
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putInt(MAGIC).putInt(0).putInt(key.length).putInt(data == null ? -1 : data.length).put(key);
+        if (data != null) buf.put(data);
+        buf.putInt(4, crc(buf.flip(), 8));
+        writeFully(channel, buf, end);
+        if (shared) channel.force(false);
+        boolean compact;
+        synchronized (this) {
+            apply(player, slot, data == null ? null : new Slot(end, size));
+            end += size;
+            compact = end - liveBytes > COMPACT_MIN_GARBAGE && end - liveBytes > liveBytes && end >= nextCompactAt;
+        }
+        if (compact) compact();
+    }
+
+    private void apply(String player, String slot, Slot s) {
+        Map<String, Slot> slots = index.computeIfAbsent(player, p -> new HashMap<>());
+        Slot old = s == null ? slots.remove(slot) : slots.put(slot, s);
+        if (old != null) {
+            liveBytes -= old.size();
+            slotCount--;
+        }
+        if (s != null) {
+            liveBytes += s.size();
+            slotCount++;
+        }
+        if (slots.isEmpty()) index.remove(player);
+    }
+
+    // Дочитывает записи от позиции from до конца файла. Целая запись с неверной CRC или мусор посреди файла
+    // пропускаются до следующей целой записи, а отрезается только оборванный хвост — то, после чего целых
+    // записей нет. Вызывается под блокировкой файла, так что чужая запись в этот момент не дописывается
+    private void scan(long from) throws IOException {
+        long size = channel.size();
+        long pos = from;
+        while (pos + HEADER <= size) {
+            long next = readRecord(pos, size, true);
+            if (next >= 0) {
+                pos = next;
+                continue;
+            }
+            long found = findRecord(pos + 1, size);
+            if (found < 0) break;
+            System.err.println("Хранилище сохранений: пропущена повреждённая запись, " + (found - pos) + " байт");
+            pos = found;
+        }
+        if (pos < size) {
+            System.err.println("Хранилище сохранений: отброшен оборванный хвост " + (size - pos) + " байт");
+            channel.truncate(pos);
+        }
+        end = pos;
+    }
+
+    // Конец целой записи, начинающейся с pos, или -1; apply — сразу внести её в индекс
+    private long readRecord(long pos, long size, boolean apply) throws IOException {
+        if (pos + HEADER > size) return -1;
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        readFully(header, pos);
+        int magic = header.getInt(0);
+        int keyLen = header.getInt(8);
+        int valueLen = header.getInt(12);
+        long recordSize = HEADER + (long) keyLen + Math.max(valueLen, 0);
+        if (magic != MAGIC || keyLen <= 0 || valueLen < -1 || pos + recordSize > size || recordSize > Integer.MAX_VALUE) {
+            return -1;
+        }
+        ByteBuffer record = ByteBuffer.allocate((int) recordSize);
+        readFully(record, pos);
+        record.flip();
+        if (record.getInt(4) != crc(record, 8)) return -1;
+
+        if (apply) {
+            String key = new String(record.array(), HEADER, keyLen, StandardCharsets.UTF_8);
+            int sep = key.indexOf('\u0000');
+            apply(key.substring(0, sep), key.substring(sep + 1), valueLen < 0 ? null : new Slot(pos, (int) recordSize));
+        }
+        return pos + recordSize;
+    }
+
+    // Начало первой целой записи не раньше from: MAGIC, за которым идёт запись с верной CRC; -1, если нет
+    private long findRecord(long from, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+        for (long p = from; p + HEADER <= size; p += buf.capacity() - 3) {
+            buf.clear();
+            if (size - p < buf.capacity()) buf.limit((int) (size - p));
+            readFully(buf, p);
+            for (int i = 0; i + 4 <= buf.limit(); i++) {
+                if (buf.getInt(i) == MAGIC && readRecord(p + i, size, false) >= 0) return p + i;
+            }
+        }
+        return -1;
+    }
+
+    // Переписывает только живые записи в новый файл и атомарно подменяет им старый.
+    // Новые позиции и канал подставляются только после успешной подмены, а при ошибке
+    // хранилище продолжает работать со старым файлом, мусор просто остаётся до следующей попытки.
+    // Идёт под writes: индекс при этом никто не меняет, и читатели работают со старым файлом до подмены
+    private void compact() {
+        Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+        Map<String, Map<String, Slot>> moved = new HashMap<>();
+        FileChannel out = null;
+        try {
+            out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long pos = 0;
+            for (Map.Entry<String, Map<String, Slot>> player : index.entrySet()) {
+                Map<String, Slot> slots = new HashMap<>();
+                for (Map.Entry<String, Slot> e : player.getValue().entrySet()) {
+                    Slot s = e.getValue();
+                    long copied = 0;
+                    while (copied < s.size()) {
+                        copied += channel.transferTo(s.offset() + copied, s.size() - copied, out.position(pos + copied));
+                    }
+                    slots.put(e.getKey(), new Slot(pos, s.size()));
+                    pos += s.size();
+                }
+                moved.put(player.getKey(), slots);
+            }
+            if (shared) out.force(true);
+            // Новое поколение пишется до подмены: если подмена не удастся, другие процессы лишь перечитают
+            // старый файл, а если удастся — не смогут его пропустить
+            writeFully(lockChannel, ByteBuffer.allocate(Long.BYTES).putLong(0, ++generation), 0);
+            // Открытый канал переезжает вместе с файлом, так что переоткрывать после подмены нечего
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            synchronized (this) {
+                closeQuietly(channel);
+                channel = out;
+                index.clear();
+                index.putAll(moved);
+                end = pos;
+            }
+        } catch (IOException e) {
+            closeQuietly(out);
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // Недописанный временный файл перезапишет следующая компакция
+            }
+            synchronized (this) {
+                nextCompactAt = end * 2;
+            }
+            System.err.println("Не удалось сжать хранилище сохранений: " + e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(FileChannel ch) {
+        if (ch == null) return;
+        try {
+            ch.close();
+        } catch (IOException ignored) {
+            // Закрываем после ошибки — вторая ошибка ничего не добавит
+        }
+    }
+
+    private static byte[] key(String player, String slot) {
+        return (player + '\u0000' + slot).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int crc(ByteBuffer buf, int from) {
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(from, buf.limit() - from));
+        return (int) crc.getValue();
+    }
+
+    private void readFully(ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, pos + buf.position()) < 0) throw new IOException("неожиданный конец файла " + file);
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            ch.write(buf, pos + buf.position());
+        }
+    }
+
+    @Override
+    public void close() {
+        writes.lock();
+        try {
+            synchronized (this) {
+                channel.close();
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Не удалось закрыть хранилище сохранений: " + e.getMessage());
+        } finally {
+            OPEN.remove(lockFile);
+            writes.unlock();
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.IntStream;
+
+// Агрегаты по истории очков (scores.csv, строки "ts,player,score").
+// Файл отображается в память, режется на куски по границам строк и разбирается параллельно
+// прямо из байтов: строки String создаются только для имён игроков, по одной на кусок.
+// Кусков не больше, чем потоков (если позволяет размер отображения), и каждый сливается в общие
+// накопители по готовности, а при большом числе игроков — и по ходу разбора, так что память кусков
+// ограничена, а общие накопители растут только с числом игроков.
+public final class ScoreStats {
+    private static final int MIN_CHUNK = 1 << 20;
+    private static final int MAX_CHUNK = 1 << 28;
+    // Сколько пар (игрок, корзина) кусок копит до слияния в общие накопители
+    private static final int FLUSH_PAIRS = 1 << 16;
+
+    public record PlayerStats(String player, long count, int best, double average, int p50, int p95) {
+    }
+
+    // from/to — границы окна по дате записи включительно, null — без ограничения
+    public static List<PlayerStats> compute(Path file, LocalDate from, LocalDate to) {
+        int fromDay = from == null ? Integer.MIN_VALUE : toDay(from);
+        int toDay = to == null ? Integer.MAX_VALUE : toDay(to);
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = split(ch);
+            Map<String, Acc> merged = new HashMap<>();
+            IntStream.range(0, bounds.length - 1).parallel()
+                    .forEach(i -> parse(ch, bounds[i], bounds[i + 1], fromDay, toDay, merged));
+
+            List<PlayerStats> result = new ArrayList<>(merged.size());
+            merged.forEach((name, acc) -> result.add(acc.toStats(name)));
+            result.sort(Comparator.comparingInt(PlayerStats::best).reversed().thenComparing(PlayerStats::player));
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать " + file, e);
+        }
+    }
+
+    private static void merge(Map<String, Acc> merged, Chunk c) {
+        synchronized (merged) {
+            Acc[] accs = new Acc[c.size];
+            for (int e = 0; e < c.size; e++) {
+                String name = new String(c.names, c.nameStart[e], c.nameLen[e], StandardCharsets.UTF_8);
+                Acc acc = merged.computeIfAbsent(name, n -> new Acc());
+                acc.add(c.count[e], c.sum[e], c.best[e]);
+                accs[e] = acc;
+            }
+            for (int slot = 0; slot < c.histKeys.length; slot++) {
+                long key = c.histKeys[slot];
+                if (key != 0) accs[(int) (key >>> 8) - 1].addHist((int) key & 0xFF, c.histCounts[slot]);
+            }
+        }
+    }
+
+    // player == null — все игроки
+    public static void print(Path file, LocalDate from, LocalDate to, String player) {
+        long t = System.nanoTime();
+        List<PlayerStats> stats = compute(file, from, to);
+        long millis = (System.nanoTime() - t) / 1_000_000;
+
+        System.out.println("Статистика очков" + (from == null ? "" : " с " + from) + (to == null ? "" : " по " + to) + ":");
+        int shown = 0;
+        for (PlayerStats s : stats) {
+            if (player != null && !s.player().equalsIgnoreCase(player)) continue;
+            if (shown++ == 20) break;
+            System.out.printf("  %-16s игр=%d лучший=%d средний=%.1f p50=%d p95=%d%n",
+                    s.player(), s.count(), s.best(), s.average(), s.p50(), s.p95());
+        }
+        if (shown == 0) System.out.println("  Нет данных.");
+        System.out.println("Игроков: " + stats.size() + ", время: " + millis + " мс");
+    }
+
+    // Границы кусков: по одному на поток, каждая сдвинута на начало следующей строки
+    private static long[] split(FileChannel ch) throws IOException {
+        long size = ch.size();
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long chunk = Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, size / parallelism + 1));
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        long pos = chunk;
+        while (pos < size) {
+            long lineEnd = -1;
+            for (long p = pos; p < size && lineEnd < 0; ) {
+                buf.clear();
+                int n = ch.read(buf, p);
+                if (n <= 0) break;
+                for (int i = 0; i < n; i++) {
+                    if (buf.get(i) == '\n') {
+                        lineEnd = p + i + 1;
+                        break;
+                    }
+                }
+                p += n;
+            }
+            if (lineEnd < 0 || lineEnd >= size) break;
+            bounds.add(lineEnd);
+            pos = lineEnd + chunk;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static void parse(FileChannel ch, long start, long end, int fromDay, int toDay, Map<String, Acc> merged) {
+        if (end <= start) return;
+        MappedByteBuffer buf;
+        try {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Chunk c = new Chunk();
+        int limit = buf.limit();
+        int pos = 0;
+        while (pos < limit) {
+            int lineStart = pos;
+            int comma1 = -1, comma2 = -1;
+            while (pos < limit) {
+                byte b = buf.get(pos);
+                if (b == '\n') break;
+                if (b == ',') {
+                    if (comma1 < 0) comma1 = pos;
+                    else if (comma2 < 0) comma2 = pos;
+                }
+                pos++;
+            }
+            int lineEnd = pos++;
+            if (comma2 < 0) continue;
+
+            int day = parseDay(buf, lineStart, comma1);
+            if (day < fromDay || day > toDay) continue;
+
+            // Очки: необязательный минус и цифры до конца строки (допускается \r)
+            int i = comma2 + 1;
+            boolean negative = i < lineEnd && buf.get(i) == '-';
+            if (negative) i++;
+            int score = 0, digits = 0;
+            for (; i < lineEnd; i++) {
+                byte b = buf.get(i);
+                if (b < '0' || b > '9') break;
+                score = score * 10 + (b - '0');
+                digits++;
+            }
+            if (digits == 0) continue; // заголовок или битая строка
+            c.add(buf, comma1 + 1, comma2 - comma1 - 1, negative ? -score : score);
+            if (c.histSize >= FLUSH_PAIRS) {
+                merge(merged, c);
+                c = new Chunk();
+            }
+        }
+        merge(merged, c);
+    }
+
+    // Дата из начала метки времени "yyyy-MM-dd..." в виде числа yyyyMMdd; -1, если не разобрать
+    private static int parseDay(ByteBuffer buf, int from, int to) {
+        if (to - from < 10 || buf.get(from + 4) != '-' || buf.get(from + 7) != '-') return -1;
+        int day = 0;
+        for (int i = from; i < from + 10; i++) {
+            if (i == from + 4 || i == from + 7) continue;
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) return -1;
+            day = day * 10 + d;
+        }
+        return day;
+    }
+
+    private static int toDay(LocalDate d) {
+        return d.getYear() * 10_000 + d.getMonthValue() * 100 + d.getDayOfMonth();
+    }
+
+    // Гистограмма: точные корзины до 8, дальше 8 корзин на каждую степень двойки, всего 232 на весь int.
+    // Перцентиль берётся по середине корзины, ошибка не больше 6%
+    private static int bucket(int score) {
+        if (score < 8) return Math.max(score, 0);
+        int msb = 31 - Integer.numberOfLeadingZeros(score);
+        return 8 + (msb - 3) * 8 + ((score >>> (msb - 3)) & 7);
+    }
+
+    private static int bucketValue(int bucket) {
+        if (bucket < 8) return bucket;
+        int shift = (bucket - 8) / 8;
+        return ((8 + (bucket - 8) % 8) << shift) + ((1 << shift) >> 1);
+    }
+
+    // Накопители одного куска: открытая адресация по байтам имени, без строк и упаковки.
+    // Гистограммы разреженные — пары (игрок, корзина) в своей таблице, — потому что в куске
+    // у большинства игроков лишь несколько записей
+    private static final class Chunk {
+        int size;
+        int[] table = new int[64];
+        byte[] names = new byte[1024];
+        int namesUsed;
+        int[] nameStart = new int[16];
+        int[] nameLen = new int[16];
+        int[] hash = new int[16];
+        long[] count = new long[16];
+        long[] sum = new long[16];
+        int[] best = new int[16];
+        // Ключ пары: (номер игрока + 1) << 8 | корзина; 0 — пустая ячейка
+        long[] histKeys = new long[64];
+        int[] histCounts = new int[64];
+        int histSize;
+
+        void add(ByteBuffer buf, int from, int len, int score) {
+            int h = 0x811C9DC5;
+            for (int i = from; i < from + len; i++) {
+                h = (h ^ buf.get(i)) * 0x01000193;
+            }
+            int mask = table.length - 1;
+            int slot = h & mask;
+            int e;
+            while ((e = table[slot] - 1) >= 0 && !(hash[e] == h && sameName(e, buf, from, len))) {
+                slot = (slot + 1) & mask;
+            }
+            if (e < 0) {
+                e = newEntry(buf, from, len, h);
+                table[slot] = e + 1;
+                if (size * 2 > table.length) rehash();
+            }
+
+            count[e]++;
+            sum[e] += score;
+            if (count[e] == 1 || score > best[e]) best[e] = score;
+            countBucket((long) (e + 1) << 8 | bucket(score));
+        }
+
+        private void countBucket(long key) {
+            int mask = histKeys.length - 1;
+            int slot = histSlot(key, histKeys.length);
+            while (histKeys[slot] != 0 && histKeys[slot] != key) slot = (slot + 1) & mask;
+            histCounts[slot]++;
+            if (histKeys[slot] == 0) {
+                histKeys[slot] = key;
+                if (++histSize * 2 > histKeys.length) rehashHist();
+            }
+        }
+
+        // Старшие биты мультипликативного хеша: в младших битах ключа лежит только корзина
+        private static int histSlot(long key, int length) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - Integer.numberOfTrailingZeros(length)));
+        }
+
+        private void rehashHist() {
+            long[] keys = histKeys;
+            int[] counts = histCounts;
+            histKeys = new long[keys.length * 2];
+            histCounts = new int[keys.length * 2];
+            int mask = histKeys.length - 1;
+            for (int i = 0; i < keys.length; i++) {
+                long key = keys[i];
+                if (key == 0) continue;
+                int slot = histSlot(key, histKeys.length);
+                while (histKeys[slot] != 0) slot = (slot + 1) & mask;
+                histKeys[slot] = key;
+                histCounts[slot] = counts[i];
+            }
+        }
+
+        private boolean sameName(int e, ByteBuffer buf, int from, int len) {
+            if (nameLen[e] != len) return false;
+            int start = nameStart[e];
+            for (int i = 0; i < len; i++) {
+                if (names[start + i] != buf.get(from + i)) return false;
+            }
+            return true;
+        }
+
+        private int newEntry(ByteBuffer buf, int from, int len, int h) {
+            if (size == count.length) {
+                int n = size * 2;
+                nameStart = Arrays.copyOf(nameStart, n);
+                nameLen = Arrays.copyOf(nameLen, n);
+                hash = Arrays.copyOf(hash, n);
+                count = Arrays.copyOf(count, n);
+                sum = Arrays.copyOf(sum, n);
+                best = Arrays.copyOf(best, n);
+            }
+            if (namesUsed + len > names.length) names = Arrays.copyOf(names, Math.max(names.length * 2, namesUsed + len));
+            buf.get(from, names, namesUsed, len);
+            int e = size++;
+            nameStart[e] = namesUsed;
+            nameLen[e] = len;
+            hash[e] = h;
+            namesUsed += len;
+            return e;
+        }
+
+        private void rehash() {
+            int[] t = new int[table.length * 2];
+            int mask = t.length - 1;
+            for (int e = 0; e < size; e++) {
+                int slot = hash[e] & mask;
+                while (t[slot] != 0) slot = (slot + 1) & mask;
+                t[slot] = e + 1;
+            }
+            table = t;
+        }
+    }
+
+    // Итоговый накопитель игрока после слияния кусков
+    private static final class Acc {
+        long count;
+        long sum;
+        int best = Integer.MIN_VALUE;
+        // Растёт по октаве до самой старшей встреченной корзины, то есть не больше 232
+        int[] hist = new int[16];
+
+        void add(long count, long sum, int best) {
+            this.count += count;
+            this.sum += sum;
+            this.best = Math.max(this.best, best);
+        }
+
+        void addHist(int bucket, int n) {
+            if (bucket >= hist.length) hist = Arrays.copyOf(hist, (bucket + 8) & ~7);
+            hist[bucket] += n;
+        }
+
+        PlayerStats toStats(String name) {
+            return new PlayerStats(name, count, best, (double) sum / count, percentile(0.50), percentile(0.95));
+        }
+
+        private int percentile(double q) {
+            long rank = (long) Math.ceil(q * count);
+            long seen = 0;
+            for (int b = 0; b < hist.length; b++) {
+                seen += hist[b];
+                if (seen >= rank) return Math.min(bucketValue(b), best);
+            }
+            return best;
+        }
+    }
+
+    private ScoreStats() {
+    }
+}
@@ -0,0 +1,295 @@
+package core;
+
+import model.*;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Сессии многих игроков в одной JVM под бюджетом памяти. Сессии упорядочены по последней активности;
+// когда оценка занятой ими памяти превышает бюджет, самые давно неактивные сохраняются в файл
+// вытеснения (SaveStore) и убираются из памяти. Следующая команда такой сессии поднимает её обратно:
+// свежий мир от worldFactory плюс сохранённый снимок.
+//
+// Замок менеджера защищает только учёт сессий: чтение и запись файла вытеснения и сборка мира
+// идут вне его. На это время сессия остаётся в таблице с пометкой "поднимается" или "вытесняется",
+// и команды к ней ждут окончания, а команды к остальным сессиям идут без задержки.
+// Запись вытесняемых сессий, удаление поднятых и компакция файла идут на отдельном потоке,
+// так что поток команды, после которой сработал бюджет, их не ждёт.
+public final class SessionManager implements AutoCloseable {
+    private static final String SPILL_SLOT = "session";
+    private static final int LATENCY_SAMPLES = 1024;
+    // Вытесняемые сессии остаются в памяти, пока ждут записи, поэтому очередь ограничена:
+    // сверх неё поток команды ждёт места. Писать самому нельзя — запись обогнала бы удаление
+    // той же сессии, ещё стоящее в очереди
+    private static final int MAX_QUEUED_EVICTIONS = 64;
+
+    private final SaveStore spill;
+    private final ExecutorService spillWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "session-spill");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Semaphore evictionQueue = new Semaphore(MAX_QUEUED_EVICTIONS);
+    private final long budgetBytes;
+    private final Supplier<GameState> worldFactory;
+    // Порядок доступа: первой идёт самая давно неактивная сессия
+    private final LinkedHashMap<String, Session> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes;
+    // Свой счётчик вместо spill.size(): хранилище держит свой замок на время записи на диск
+    private int spilled;
+    private long evictions;
+    private long reactivations;
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+
+    private enum Phase { LOADING, RESIDENT, EVICTING }
+
+    private static final class Session {
+        final String id;
+        // Присваивается поднимающим потоком до перехода в RESIDENT под замком менеджера
+        GameState state;
+        Phase phase = Phase.LOADING;
+        long bytes;
+        long lastActive = System.nanoTime();
+        // Сессию, на которой сейчас выполняется команда, вытеснять нельзя
+        int pins;
+
+        Session(String id) {
+            this.id = id;
+        }
+    }
+
+    public SessionManager(Path spillFile, long budgetBytes, Supplier<GameState> worldFactory) {
+        // Файл вытеснения — продолжение памяти: частный и без сброса на диск
+        this.spill = new SaveStore(spillFile, false);
+        this.spilled = spill.size();
+        this.budgetBytes = budgetBytes;
+        this.worldFactory = worldFactory;
+    }
+
+    // Бюджет берётся из -Ddungeon.sessions.budget.mb (по умолчанию 64)
+    public static long configuredBudget() {
+        return Long.getLong("dungeon.sessions.budget.mb", 64) << 20;
+    }
+
+    // Выполняет действие над сессией id: резидентная берётся из памяти, вытесненная поднимается
+    // из файла, неизвестная создаётся с новым миром. Команды одной сессии выполняются по очереди,
+    // разных — параллельно
+    public <T> T withSession(String id, Function<GameState, T> action) {
+        Session s = activate(id);
+        long bytes = -1;
+        try {
+            synchronized (s) {
+                try {
+                    return action.apply(s.state);
+                } finally {
+                    // Оценка обходит мир, поэтому считается под замком сессии, пока её никто не меняет
+                    bytes = estimateBytes(s.state);
+                }
+            }
+        } finally {
+            evict(deactivate(s, bytes));
+        }
+    }
+
+    private Session activate(String id) {
+        Session s;
+        synchronized (this) {
+            boolean interrupted = false;
+            while ((s = resident.get(id)) != null && s.phase != Phase.RESIDENT) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            if (s != null) {
+                s.pins++;
+                return s;
+            }
+            s = new Session(id);
+            s.pins++;
+            resident.put(id, s);
+        }
+        load(s);
+        return s;
+    }
+
+    // Сборка мира и чтение файла вытеснения — вне замка менеджера; остальные команды к этой сессии
+    // ждут в activate. Если подъём не удался, сессия убирается из таблицы, снимок остаётся в файле
+    private void load(Session s) {
+        long t = System.nanoTime();
+        boolean restored = false;
+        try {
+            GameState state = worldFactory.get();
+            byte[] data = spill.get(s.id, SPILL_SLOT);
+            if (data != null) {
+                SaveLoad.restore(state, data);
+                restored = true;
+                // Удаление — в очередь записи: следующее вытеснение этой сессии встанет за ним
+                submit(() -> dropSpilled(s.id));
+            }
+            s.state = state;
+        } finally {
+            synchronized (this) {
+                if (s.state != null) {
+                    s.phase = Phase.RESIDENT;
+                    if (restored) {
+                        spilled--;
+                        latencies[(int) (reactivations++ % LATENCY_SAMPLES)] = System.nanoTime() - t;
+                    }
+                } else {
+                    resident.remove(s.id);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Возвращает сессии, выбранные для вытеснения: они уже исключены из учёта памяти и помечены,
+    // а запись их снимков делает evict вне замка
+    private synchronized List<Session> deactivate(Session s, long bytes) {
+        s.pins--;
+        s.lastActive = System.nanoTime();
+        if (bytes >= 0) {
+            residentBytes += bytes - s.bytes;
+            s.bytes = bytes;
+        }
+        return selectVictims(s);
+    }
+
+    // Только что активная сессия остаётся в памяти, даже если одна не влезает в бюджет
+    private List<Session> selectVictims(Session keep) {
+        List<Session> victims = List.of();
+        Iterator<Session> it = resident.values().iterator();
+        while (residentBytes > budgetBytes && it.hasNext()) {
+            Session s = it.next();
+            if (s.pins > 0 || s == keep || s.phase != Phase.RESIDENT) continue;
+            if (victims.isEmpty()) victims = new ArrayList<>();
+            victims.add(s);
+            s.phase = Phase.EVICTING;
+            residentBytes -= s.bytes;
+        }
+        return victims;
+    }
+
+    private void evict(List<Session> victims) {
+        for (Session s : victims) {
+            evictionQueue.acquireUninterruptibly();
+            if (submit(() -> {
+                try {
+                    writeOut(s);
+                } finally {
+                    evictionQueue.release();
+                }
+            })) continue;
+            evictionQueue.release();
+            writeOut(s);
+        }
+    }
+
+    // Не удалённая копия безвредна: следующее вытеснение перезапишет слот
+    private void dropSpilled(String id) {
+        try {
+            spill.remove(id, SPILL_SLOT);
+        } catch (RuntimeException e) {
+            System.err.println("Не удалось удалить вытесненную сессию " + id + ": " + e.getMessage());
+        }
+    }
+
+    // false, если поток записи уже остановлен
+    private boolean submit(Runnable task) {
+        try {
+            spillWriter.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    // Пока сессия помечена EVICTING, новых команд к ней нет, а старые уже закончились (pins == 0).
+    // Если запись не удалась, сессия возвращается в память
+    private void writeOut(Session s) {
+        boolean written = false;
+        try {
+            byte[] data;
+            synchronized (s) {
+                data = SaveLoad.encode(SaveSnapshot.capture(s.state));
+            }
+            spill.put(s.id, SPILL_SLOT, data);
+            written = true;
+        } catch (RuntimeException e) {
+            System.err.println("Не удалось вытеснить сессию " + s.id + ": " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                if (written) {
+                    resident.remove(s.id);
+                    spilled++;
+                    evictions++;
+                } else {
+                    s.phase = Phase.RESIDENT;
+                    residentBytes += s.bytes;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Оценка занятой сессией памяти: мир, сущности, предметы, строки имён и индекс мира, если он построен
+    // (он весит вдесятеро больше самого мира). Цены сняты замером кучи, сверка — core.Benchmarks sessions
+    static long estimateBytes(GameState state) {
+        long bytes = 512 + state.indexBytes();
+        for (Room r : state.getRooms()) {
+            bytes += 200 + 2L * r.getName().length();
+            for (Item i : r.getItems()) bytes += 80 + 2L * i.getName().length();
+            if (r.getMonster() != null) bytes += 100 + 2L * r.getMonster().getName().length();
+        }
+        for (Item i : state.getPlayer().getInventory()) bytes += 80 + 2L * i.getName().length();
+        return bytes;
+    }
+
+    public synchronized int residentCount() {
+        return resident.size();
+    }
+
+    public synchronized long residentBytes() {
+        return residentBytes;
+    }
+
+    public synchronized int spilledCount() {
+        return spilled;
+    }
+
+    // Время с последней команды самой давно неактивной резидентной сессии
+    public synchronized long oldestIdleMillis() {
+        if (resident.isEmpty()) return 0;
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - resident.values().iterator().next().lastActive);
+    }
+
+    public synchronized String stats() {
+        long[] sorted = Arrays.copyOf(latencies, (int) Math.min(reactivations, LATENCY_SAMPLES));
+        Arrays.sort(sorted);
+        String latency = sorted.length == 0 ? "нет" : String.format("p50=%d мкс p99=%d мкс max=%d мкс",
+                TimeUnit.NANOSECONDS.toMicros(sorted[sorted.length / 2]),
+                TimeUnit.NANOSECONDS.toMicros(sorted[(int) (sorted.length * 0.99)]),
+                TimeUnit.NANOSECONDS.toMicros(sorted[sorted.length - 1]));
+        return "Сессий в памяти: " + resident.size() + " (~" + (residentBytes >> 10) + " КБ из " + (budgetBytes >> 10)
+                + " КБ), вытеснено сейчас: " + spilled + ", вытеснений: " + evictions
+                + ", подъёмов: " + reactivations + ", задержка подъёма: " + latency;
+    }
+
+    // Без замка менеджера: дописывающиеся вытеснения сами его берут
+    @Override
+    public void close() {
+        spillWriter.shutdown();
+        try {
+            spillWriter.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        spill.close();
+    }
+}
@@ -0,0 +1,57 @@
+package core;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+
+public final class StartupProfile {
+    private static final int MAX_PHASES = 16;
+    private static final long START_NANOS = System.nanoTime();
+    private static final long START_MILLIS = System.currentTimeMillis();
+    private static final String[] phases = new String[MAX_PHASES];
+    private static final long[] marks = new long[MAX_PHASES];
+    private static int count;
+
+    // Отмечает конец фазы запуска; повторные отметки той же фазы игнорируются
+    public static synchronized void mark(String phase) {
+        if (count == MAX_PHASES) return;
+        for (int i = 0; i < count; i++) {
+            if (phases[i].equals(phase)) return;
+        }
+        phases[count] = phase;
+        marks[count] = System.nanoTime();
+        count++;
+    }
+
+    public static synchronized String report() {
+        StringBuilder sb = new StringBuilder("Профиль запуска:");
+        // Время от старта JVM до загрузки профиля считаем только здесь, чтобы не тормозить запуск
+        Instant jvmStart = ProcessHandle.current().info().startInstant().orElse(null);
+        if (jvmStart != null) {
+            long jvmMillis = Duration.between(jvmStart, Instant.ofEpochMilli(START_MILLIS)).toMillis();
+            sb.append("\n  jvm -> main: ").append(jvmMillis).append(" мс");
+        }
+        long prev = START_NANOS;
+        for (int i = 0; i < count; i++) {
+            sb.append("\n  ").append(phases[i]).append(": +")
+                    .append(formatMillis(marks[i] - prev)).append(" мс (всего ")
+                    .append(formatMillis(marks[i] - START_NANOS)).append(" мс)");
+            prev = marks[i];
+        }
+        Runtime rt = Runtime.getRuntime();
+        sb.append("\n  Куча сейчас: ").append((rt.totalMemory() - rt.freeMemory()) / 1024).append(" KB");
+        // Всё, что выделил этот поток с запуска JVM; сравнение сборок — java core.Benchmarks startup
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            sb.append("\n  Выделено потоком ").append(Thread.currentThread().getName()).append(": ")
+                    .append(threads.getCurrentThreadAllocatedBytes() / 1024).append(" KB");
+        }
+        return sb.toString();
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+    private StartupProfile() {
+    }
+}
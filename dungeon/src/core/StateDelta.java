@@ -0,0 +1,186 @@
+package core;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Изменения состояния игры за одну или несколько команд (seq от fromSeq до toSeq).
+// Поля игрока передаются только если изменились (flags), комнаты — целиком, но только изменённые.
+// Двоичный формат: varint-числа, строки — varint-длина и байты UTF-8.
+public final class StateDelta {
+    static final int HP = 1;
+    static final int ATTACK = 1 << 1;
+    static final int SCORE = 1 << 2;
+    static final int ROOM = 1 << 3;
+    static final int INVENTORY = 1 << 4;
+
+    private final long fromSeq;
+    private final long toSeq;
+    private final int flags;
+    private final int hp;
+    private final int attack;
+    private final int score;
+    private final int currentRoom;
+    private final List<String> inventory;
+    private final SortedMap<Integer, RoomDelta> rooms;
+    private volatile byte[] encoded;
+
+    // Состояние комнаты целиком: монстр (HP или -1, если его нет), маска закрытых дверей и предметы
+    public record RoomDelta(int roomId, int monsterHp, int lockMask, List<String> items) {
+    }
+
+    StateDelta(long fromSeq, long toSeq, int flags, int hp, int attack, int score, int currentRoom,
+               List<String> inventory, SortedMap<Integer, RoomDelta> rooms) {
+        this.fromSeq = fromSeq;
+        this.toSeq = toSeq;
+        this.flags = flags;
+        this.hp = hp;
+        this.attack = attack;
+        this.score = score;
+        this.currentRoom = currentRoom;
+        this.inventory = inventory;
+        this.rooms = rooms;
+    }
+
+    public long fromSeq() {
+        return fromSeq;
+    }
+
+    public long toSeq() {
+        return toSeq;
+    }
+
+    public Collection<RoomDelta> rooms() {
+        return Collections.unmodifiableCollection(rooms.values());
+    }
+
+    // Склейка для отстающего подписчика: более новые значения перекрывают старые
+    StateDelta merge(StateDelta next) {
+        SortedMap<Integer, RoomDelta> merged = new TreeMap<>(rooms);
+        merged.putAll(next.rooms);
+        int f = flags | next.flags;
+        return new StateDelta(fromSeq, next.toSeq, f,
+                next.has(HP) ? next.hp : hp,
+                next.has(ATTACK) ? next.attack : attack,
+                next.has(SCORE) ? next.score : score,
+                next.has(ROOM) ? next.currentRoom : currentRoom,
+                next.has(INVENTORY) ? next.inventory : inventory,
+                merged);
+    }
+
+    boolean has(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    // Кодируется один раз и переиспользуется всеми подписчиками, получившими эту же дельту
+    public byte[] encode() {
+        byte[] bytes = encoded;
+        if (bytes == null) {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(64);
+            try (DataOutputStream out = new DataOutputStream(buf)) {
+                writeVarLong(out, toSeq);
+                writeVarLong(out, toSeq - fromSeq);
+                out.writeByte(flags);
+                if (has(HP)) writeSigned(out, hp);
+                if (has(ATTACK)) writeSigned(out, attack);
+                if (has(SCORE)) writeSigned(out, score);
+                if (has(ROOM)) writeVarLong(out, currentRoom);
+                if (has(INVENTORY)) writeStrings(out, inventory);
+                writeVarLong(out, rooms.size());
+                for (RoomDelta r : rooms.values()) {
+                    writeVarLong(out, r.roomId());
+                    writeSigned(out, r.monsterHp());
+                    writeVarLong(out, r.lockMask());
+                    writeStrings(out, r.items());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            encoded = bytes = buf.toByteArray();
+        }
+        return bytes;
+    }
+
+    public static StateDelta decode(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            long toSeq = readVarLong(in);
+            long fromSeq = toSeq - readVarLong(in);
+            int flags = in.readUnsignedByte();
+            int hp = (flags & HP) != 0 ? readSigned(in) : 0;
+            int attack = (flags & ATTACK) != 0 ? readSigned(in) : 0;
+            int score = (flags & SCORE) != 0 ? readSigned(in) : 0;
+            int room = (flags & ROOM) != 0 ? (int) readVarLong(in) : -1;
+            List<String> inventory = (flags & INVENTORY) != 0 ? readStrings(in) : List.of();
+            SortedMap<Integer, RoomDelta> rooms = new TreeMap<>();
+            for (long n = readVarLong(in); n > 0; n--) {
+                int id = (int) readVarLong(in);
+                rooms.put(id, new RoomDelta(id, readSigned(in), (int) readVarLong(in), readStrings(in)));
+            }
+            return new StateDelta(fromSeq, toSeq, flags, hp, attack, score, room, inventory, rooms);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Повреждённая дельта", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("#").append(fromSeq);
+        if (toSeq != fromSeq) sb.append("..").append(toSeq);
+        if (has(HP)) sb.append(" hp=").append(hp);
+        if (has(ATTACK)) sb.append(" attack=").append(attack);
+        if (has(SCORE)) sb.append(" score=").append(score);
+        if (has(ROOM)) sb.append(" room=").append(currentRoom);
+        if (has(INVENTORY)) sb.append(" inventory=").append(inventory);
+        for (RoomDelta r : rooms.values()) {
+            sb.append(" room[").append(r.roomId()).append("]{monsterHp=").append(r.monsterHp())
+                    .append(" locked=").append(Integer.toBinaryString(r.lockMask())).append(" items=").append(r.items()).append('}');
+        }
+        return sb.toString();
+    }
+
+    private static void writeVarLong(DataOutput out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+    }
+
+    private static void writeSigned(DataOutput out, int v) throws IOException {
+        writeVarLong(out, ((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL);
+    }
+
+    private static int readSigned(DataInput in) throws IOException {
+        long z = readVarLong(in);
+        return (int) (z >>> 1) ^ -(int) (z & 1);
+    }
+
+    private static void writeStrings(DataOutput out, List<String> list) throws IOException {
+        writeVarLong(out, list.size());
+        for (String s : list) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, b.length);
+            out.write(b);
+        }
+    }
+
+    private static List<String> readStrings(DataInput in) throws IOException {
+        int n = (int) readVarLong(in);
+        List<String> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            byte[] b = new byte[(int) readVarLong(in)];
+            in.readFully(b);
+            list.add(new String(b, StandardCharsets.UTF_8));
+        }
+        return list;
+    }
+}
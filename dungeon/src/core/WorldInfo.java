@@ -1,17 +1,38 @@
 package core;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public final class WorldInfo {
-    private static final StringBuilder log = new StringBuilder();
+    // Кольцевой буфер: хранит только последние CAPACITY записей, старые перезаписываются
+    private static final int CAPACITY = 64;
+    private static final String[] ring = new String[CAPACITY];
+    private static long written;
 
     static {
-        log.append("[static init WorldInfo]\n");
+        record("[static init WorldInfo]");
         ClassLoader cl = WorldInfo.class.getClassLoader();
-        log.append("ClassLoader: ").append(cl).append("\n");
-        if (cl != null) log.append("Parent: ").append(cl.getParent()).append("\n");
+        // String.concat, а не '+': склейка через invokedynamic стоит на запуске ~15 мс
+        record("ClassLoader: ".concat(String.valueOf(cl)));
+        if (cl != null) record("Parent: ".concat(String.valueOf(cl.getParent())));
     }
 
     public static void touch(String who) {
-        log.append("touched by ").append(who).append("\n");
+        record("touched by ".concat(who));
+    }
+
+    private static synchronized void record(String line) {
+        ring[(int) (written++ % CAPACITY)] = line;
+    }
+
+    public static synchronized List<String> trace() {
+        int size = (int) Math.min(written, CAPACITY);
+        List<String> lines = new ArrayList<>(size + 1);
+        if (written > CAPACITY) lines.add("... пропущено записей: " + (written - CAPACITY));
+        for (long i = written - size; i < written; i++) {
+            lines.add(ring[(int) (i % CAPACITY)]);
+        }
+        return lines;
     }
 
     private WorldInfo() {
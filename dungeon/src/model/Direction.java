@@ -0,0 +1,72 @@
+package model;
+
+// Направления выходов из комнаты. Каждому соответствует бит (1 << ordinal),
+// поэтому наборы выходов и закрытых дверей хранятся в комнате одним int.
+public enum Direction {
+    NORTH("north", "n"),
+    SOUTH("south", "s"),
+    EAST("east", "e"),
+    WEST("west", "w"),
+    UP("up", "u"),
+    DOWN("down", "d"),
+    NORTHEAST("northeast", "ne"),
+    NORTHWEST("northwest", "nw"),
+    SOUTHEAST("southeast", "se"),
+    SOUTHWEST("southwest", "sw");
+
+    private static final Direction[] VALUES = values();
+    public static final int COUNT = VALUES.length;
+
+    private final String id;
+    private final String shortId;
+
+    Direction(String id, String shortId) {
+        this.id = id;
+        this.shortId = shortId;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public Direction opposite() {
+        return switch (this) {
+            case NORTH -> SOUTH;
+            case SOUTH -> NORTH;
+            case EAST -> WEST;
+            case WEST -> EAST;
+            case UP -> DOWN;
+            case DOWN -> UP;
+            case NORTHEAST -> SOUTHWEST;
+            case SOUTHWEST -> NORTHEAST;
+            case NORTHWEST -> SOUTHEAST;
+            case SOUTHEAST -> NORTHWEST;
+        };
+    }
+
+    public static Direction ofOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    // Регистронезависимый разбор полного или короткого имени без создания строк; null, если не направление
+    public static Direction parse(String s) {
+        for (Direction d : VALUES) {
+            if (d.id.equalsIgnoreCase(s) || d.shortId.equalsIgnoreCase(s)) return d;
+        }
+        return null;
+    }
+
+    // Разбор набора бит из списка имён через запятую (старый формат сохранений)
+    public static int parseMask(String names) {
+        int mask = 0;
+        for (String name : names.split(",")) {
+            Direction d = parse(name.trim());
+            if (d != null) mask |= d.bit();
+        }
+        return mask;
+    }
+}
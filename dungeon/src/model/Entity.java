@@ -1,27 +1,37 @@
 package model;
 
+// Представление ячейки EntityStore: сами данные лежат в массивах хранилища
 public abstract class Entity {
-    private String name;
-    private int hp;
+    protected final EntityStore store;
+    protected final int id;
 
-    public Entity(String name, int hp) {
-        this.name = name;
-        this.hp = hp;
+    protected Entity(EntityStore store, byte kind, String name, int hp, int level, int attack) {
+        this.store = store;
+        this.id = store.allocate(kind, name, hp, level, attack);
+    }
+
+    public int getId() {
+        return id;
     }
 
     public String getName() {
-        return name;
+        return store.getName(id);
     }
 
     public void setName(String name) {
-        this.name = name;
+        store.setName(id, name);
     }
 
     public int getHp() {
-        return hp;
+        return store.getHp(id);
     }
 
     public void setHp(int hp) {
-        this.hp = hp;
+        store.setHp(id, hp);
+    }
+
+    // Возвращает ячейку хранилищу, когда сущность больше не нужна
+    public void release() {
+        store.release(id);
     }
 }
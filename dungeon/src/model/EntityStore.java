@@ -0,0 +1,163 @@
+package model;
+
+import java.util.Arrays;
+
+// Хранилище сущностей в виде параллельных массивов (struct-of-arrays), индекс — id сущности.
+// Monster и Player — лёгкие представления над своей ячейкой, а массовые операции
+// (регенерация, масштабирование сложности, поиск сильнейшего) идут плоскими циклами по массивам.
+// Не потокобезопасно: хранилище принадлежит одному GameState.
+public final class EntityStore {
+    static final byte FREE = 0;
+    static final byte MONSTER = 1;
+    static final byte PLAYER = 2;
+
+    private byte[] kind;
+    private String[] name;
+    private int[] hp;
+    private int[] maxHp;
+    private int[] level;
+    private int[] attack;
+    private int[] region;
+    private int size;
+    private int[] free = new int[16];
+    private int freeCount;
+    private int live;
+
+    public EntityStore() {
+        this(16);
+    }
+
+    public EntityStore(int capacity) {
+        kind = new byte[capacity];
+        name = new String[capacity];
+        hp = new int[capacity];
+        maxHp = new int[capacity];
+        level = new int[capacity];
+        attack = new int[capacity];
+        region = new int[capacity];
+    }
+
+    int allocate(byte k, String n, int h, int lvl, int atk) {
+        int id;
+        if (freeCount > 0) {
+            id = free[--freeCount];
+        } else {
+            if (size == kind.length) grow();
+            id = size++;
+        }
+        kind[id] = k;
+        name[id] = n;
+        hp[id] = h;
+        maxHp[id] = h;
+        level[id] = lvl;
+        attack[id] = atk;
+        region[id] = 0;
+        live++;
+        return id;
+    }
+
+    // Освобождает ячейку (например, убитого монстра); представление после этого использовать нельзя
+    public void release(int id) {
+        if (kind[id] == FREE) return;
+        kind[id] = FREE;
+        name[id] = null;
+        hp[id] = 0;
+        maxHp[id] = 0;
+        if (freeCount == free.length) free = Arrays.copyOf(free, freeCount * 2);
+        free[freeCount++] = id;
+        live--;
+    }
+
+    private void grow() {
+        int n = Math.max(16, kind.length * 2);
+        kind = Arrays.copyOf(kind, n);
+        name = Arrays.copyOf(name, n);
+        hp = Arrays.copyOf(hp, n);
+        maxHp = Arrays.copyOf(maxHp, n);
+        level = Arrays.copyOf(level, n);
+        attack = Arrays.copyOf(attack, n);
+        region = Arrays.copyOf(region, n);
+    }
+
+    public int size() {
+        return live;
+    }
+
+    String getName(int id) {
+        return name[id];
+    }
+
+    void setName(int id, String n) {
+        name[id] = n;
+    }
+
+    int getHp(int id) {
+        return hp[id];
+    }
+
+    void setHp(int id, int h) {
+        hp[id] = h;
+    }
+
+    int getLevel(int id) {
+        return level[id];
+    }
+
+    void setLevel(int id, int lvl) {
+        level[id] = lvl;
+    }
+
+    int getAttack(int id) {
+        return attack[id];
+    }
+
+    void setAttack(int id, int atk) {
+        attack[id] = atk;
+    }
+
+    int getRegion(int id) {
+        return region[id];
+    }
+
+    void setRegion(int id, int r) {
+        region[id] = r;
+    }
+
+    // Восстанавливает живым монстрам amount HP, но не выше начального
+    public void regenerateMonsters(int amount) {
+        byte[] k = kind;
+        int[] h = hp, max = maxHp;
+        for (int i = 0; i < size; i++) {
+            if (k[i] == MONSTER && h[i] > 0) h[i] = Math.min(h[i] + amount, max[i]);
+        }
+    }
+
+    // Масштабирует уровень и HP монстров на percent процентов (100 — без изменений)
+    public void scaleMonsters(int percent) {
+        byte[] k = kind;
+        int[] h = hp, max = maxHp, lvl = level;
+        for (int i = 0; i < size; i++) {
+            if (k[i] == MONSTER) {
+                lvl[i] = Math.max(1, lvl[i] * percent / 100);
+                h[i] = h[i] * percent / 100;
+                max[i] = max[i] * percent / 100;
+            }
+        }
+    }
+
+    // id сильнейшего живого монстра региона (по уровню, затем по HP) или -1
+    public int strongestMonster(int inRegion) {
+        byte[] k = kind;
+        int[] h = hp, lvl = level, reg = region;
+        int best = -1, bestLevel = Integer.MIN_VALUE, bestHp = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (k[i] == MONSTER && reg[i] == inRegion && h[i] > 0
+                    && (lvl[i] > bestLevel || lvl[i] == bestLevel && h[i] > bestHp)) {
+                best = i;
+                bestLevel = lvl[i];
+                bestHp = h[i];
+            }
+        }
+        return best;
+    }
+}
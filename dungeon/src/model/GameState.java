@@ -1,9 +1,42 @@
 package model;
 
+import java.util.*;
+
 public class GameState {
     private Player player;
     private Room current;
     private int score;
+    private final List<Room> rooms = new ArrayList<>();
+    private final EntityStore entities = new EntityStore();
+    private final List<RoomChanges> trackers = new ArrayList<>(2);
+    private WorldIndex index;
+
+    // Индекс строится при первом обращении одним обходом мира, дальше его поддерживают сами комнаты
+    public WorldIndex getIndex() {
+        if (index == null) {
+            index = new WorldIndex();
+            for (Room r : rooms) indexRoom(r);
+        }
+        return index;
+    }
+
+    WorldIndex builtIndex() {
+        return index;
+    }
+
+    // Память, занятая индексом; 0, пока его никто не запрашивал
+    public long indexBytes() {
+        return index == null ? 0 : index.estimateBytes();
+    }
+
+    private void indexRoom(Room r) {
+        for (Item item : r.getItems()) index.addItem(item.getName(), r.getId());
+        if (r.getMonster() != null) index.addMonster(r.getMonster().getName(), r.getId());
+    }
+
+    public EntityStore getEntities() {
+        return entities;
+    }
 
     public Player getPlayer() {
         return player;
@@ -17,7 +50,10 @@ public class GameState {
         return current;
     }
 
+    // HP монстра меняется в бою без версии комнаты, а бой идёт только в текущей комнате,
+    // поэтому комната, которую игрок покидает, тоже попадает в журналы изменений
     public void setCurrent(Room r) {
+        if (current != null && current != r) roomChanged(current);
         this.current = r;
     }
 
@@ -28,4 +64,33 @@ public class GameState {
     public void addScore(int d) {
         this.score += d;
     }
+
+    public List<Room> getRooms() {
+        return Collections.unmodifiableList(rooms);
+    }
+
+    // Содержимое, положенное в комнату до добавления в мир, попадает в уже построенный индекс здесь
+    public void addRoom(Room r) {
+        r.attach(this, rooms.size());
+        rooms.add(r);
+        if (index != null) indexRoom(r);
+    }
+
+    // Новый журнал изменённых комнат; изменения до этого вызова в него не попадают
+    public RoomChanges trackRoomChanges() {
+        RoomChanges changes = new RoomChanges();
+        trackers.add(changes);
+        return changes;
+    }
+
+    void roomChanged(Room r) {
+        for (RoomChanges t : trackers) t.add(r);
+    }
+
+    public Room findRoom(String name) {
+        for (Room r : rooms) {
+            if (r.getName().equals(name)) return r;
+        }
+        return null;
+    }
 }
@@ -1,18 +1,23 @@
 package model;
 
 public class Monster extends Entity {
-    private int level;
-
-    public Monster(String name, int level, int hp) {
-        super(name, hp);
-        this.level = level;
+    public Monster(EntityStore store, String name, int level, int hp) {
+        super(store, EntityStore.MONSTER, name, hp, level, 0);
     }
 
     public int getLevel() {
-        return level;
+        return store.getLevel(id);
     }
 
     public void setLevel(int level) {
-        this.level = level;
+        store.setLevel(id, level);
+    }
+
+    public int getRegion() {
+        return store.getRegion(id);
+    }
+
+    public void setRegion(int region) {
+        store.setRegion(id, region);
     }
 }
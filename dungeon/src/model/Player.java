@@ -3,20 +3,18 @@ package model;
 import java.util.*;
 
 public class Player extends Entity {
-    private int attack;
     private final List<Item> inventory = new ArrayList<>();
 
-    public Player(String name, int hp, int attack) {
-        super(name, hp);
-        this.attack = attack;
+    public Player(EntityStore store, String name, int hp, int attack) {
+        super(store, EntityStore.PLAYER, name, hp, 1, attack);
     }
 
     public int getAttack() {
-        return attack;
+        return store.getAttack(id);
     }
 
     public void setAttack(int attack) {
-        this.attack = attack;
+        store.setAttack(id, attack);
     }
 
     public List<Item> getInventory() {
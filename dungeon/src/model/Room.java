@@ -5,27 +5,46 @@ import java.util.*;
 public class Room {
     private final String name;
     private final String description;
-    private final Map<String, Room> neighbors = new HashMap<>();
+    // Выходы по направлениям: exits[direction.ordinal()], а наличие выхода и закрытость двери — биты масок
+    private final Room[] exits = new Room[Direction.COUNT];
+    private int exitMask;
     private final List<Item> items = new ArrayList<>();
     private Monster monster;
+    // Растёт при каждом изменении комнаты — по нему снимок сохранения понимает, что комнату можно не копировать
+    private int version;
+    // Номер комнаты в мире и сам мир; назначаются в GameState.addRoom
+    private int id = -1;
+    private GameState owner;
 
     //Добавление двери, закрытой ключом
-    private final Map<String, Boolean> lockedDoors = new HashMap<>();
+    private int lockMask;
 
-    public Map<String, Boolean> getLockedDoors() {
-        return lockedDoors;
+    public int getLockMask() {
+        return lockMask;
     }
 
-    public boolean isDoorLocked(String direction) {
-        return lockedDoors.getOrDefault(direction, false);
+    public boolean isDoorLocked(Direction direction) {
+        return (lockMask & direction.bit()) != 0;
     }
 
-    public void lockDoor(String direction) {
-        lockedDoors.put(direction, true);
+    public void lockDoor(Direction direction) {
+        lockMask |= direction.bit();
+        changed();
     }
 
-    public void unlockDoor(String direction) {
-        lockedDoors.put(direction, false);
+    public void unlockDoor(Direction direction) {
+        lockMask &= ~direction.bit();
+        changed();
+    }
+
+    public void setLockMask(int mask) {
+        lockMask = mask;
+        changed();
+    }
+
+    // Первая по порядку направлений закрытая дверь или null
+    public Direction firstLockedDoor() {
+        return lockMask == 0 ? null : Direction.ofOrdinal(Integer.numberOfTrailingZeros(lockMask));
     }
 
     public Room(String name, String description) {
@@ -37,12 +56,48 @@ public class Room {
         return name;
     }
 
-    public Map<String, Room> getNeighbors() {
-        return neighbors;
+    public Room getExit(Direction direction) {
+        return exits[direction.ordinal()];
+    }
+
+    public void setExit(Direction direction, Room room) {
+        exits[direction.ordinal()] = room;
+        if (room == null) exitMask &= ~direction.bit();
+        else exitMask |= direction.bit();
+    }
+
+    public int getExitMask() {
+        return exitMask;
     }
 
     public List<Item> getItems() {
-        return items;
+        return Collections.unmodifiableList(items);
+    }
+
+    public void addItem(Item item) {
+        items.add(item);
+        WorldIndex index = index();
+        if (index != null) index.addItem(item.getName(), id);
+        changed();
+    }
+
+    public boolean removeItem(Item item) {
+        boolean removed = items.remove(item);
+        if (removed) {
+            WorldIndex index = index();
+            if (index != null) index.removeItem(item.getName(), id);
+            changed();
+        }
+        return removed;
+    }
+
+    public void clearItems() {
+        WorldIndex index = index();
+        if (index != null) {
+            for (Item item : items) index.removeItem(item.getName(), id);
+        }
+        items.clear();
+        changed();
     }
 
     public Monster getMonster() {
@@ -50,7 +105,36 @@ public class Room {
     }
 
     public void setMonster(Monster m) {
+        WorldIndex index = index();
+        if (index != null) {
+            if (monster != null) index.removeMonster(monster.getName(), id);
+            if (m != null) index.addMonster(m.getName(), id);
+        }
         this.monster = m;
+        changed();
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    void attach(GameState owner, int id) {
+        this.owner = owner;
+        this.id = id;
+    }
+
+    // Индекс мира, если он уже построен; до первого поиска изменения комнат его не касаются
+    private WorldIndex index() {
+        return owner == null ? null : owner.builtIndex();
+    }
+
+    private void changed() {
+        version++;
+        if (owner != null) owner.roomChanged(this);
     }
 
     public String describe() {
@@ -62,17 +146,14 @@ public class Room {
         if (monster != null) {
             sb.append("\nВ комнате монстр: ").append(monster.getName()).append(" (ур. ").append(monster.getLevel()).append(")");
         }
-        if (!neighbors.isEmpty()) {
+        if (exitMask != 0) {
             sb.append("\nВыходы: ");
-            List<String> exits = new ArrayList<>();
-            for (String dir : neighbors.keySet()) {
-                if (isDoorLocked(dir)) {
-                    exits.add(dir + " [ЗАКРЫТО]");
-                } else {
-                    exits.add(dir);
-                }
+            for (int bits = exitMask; bits != 0; bits &= bits - 1) {
+                Direction dir = Direction.ofOrdinal(Integer.numberOfTrailingZeros(bits));
+                sb.append(dir.id());
+                if (isDoorLocked(dir)) sb.append(" [ЗАКРЫТО]");
+                if ((bits & (bits - 1)) != 0) sb.append(", ");
             }
-            sb.append(String.join(", ", exits));
         }
         return sb.toString();
     }
@@ -0,0 +1,32 @@
+package model;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+// Журнал комнат, изменённых с прошлого drain, для одного потребителя (поток дельт, автосохранение).
+// Каждая комната попадает в журнал один раз, сколько бы раз она ни менялась.
+public final class RoomChanges {
+    private final List<Room> changed = new ArrayList<>();
+    private boolean[] marked = new boolean[16];
+
+    RoomChanges() {
+    }
+
+    void add(Room r) {
+        int id = r.getId();
+        if (id < 0) return;
+        if (id >= marked.length) marked = Arrays.copyOf(marked, Math.max(id + 1, marked.length * 2));
+        if (!marked[id]) {
+            marked[id] = true;
+            changed.add(r);
+        }
+    }
+
+    public void drain(Consumer<Room> action) {
+        for (Room r : changed) {
+            marked[r.getId()] = false;
+            action.accept(r);
+        }
+        changed.clear();
+    }
+}
@@ -0,0 +1,199 @@
+package model;
+
+import java.util.*;
+
+// Обратный индекс мира: нормализованное имя предмета или монстра -> номера комнат, где он есть.
+// Для поиска по части имени ведётся индекс триграмм: триграмма -> имена, которые её содержат.
+// Обновляется инкрементально из Room (предмет положили/забрали, монстр появился/погиб).
+public final class WorldIndex {
+    private final Map<String, Postings> items = new HashMap<>();
+    private final Map<String, Postings> monsters = new HashMap<>();
+    private final Map<String, Set<String>> grams = new HashMap<>();
+    // Оценка занятой памяти, ведётся вместе с изменениями. Цены сняты замером кучи на мирах
+    // из Game.newWorld (core.Benchmarks sessions): больше всего весят множества триграмм
+    private static final int EMPTY_BYTES = 400;
+    private static final int NAME_BYTES = 170;
+    private static final int GRAM_BYTES = 230;
+    private static final int GRAM_NAME_BYTES = 36;
+    private long bytes = EMPTY_BYTES;
+
+    // Отсортированные номера комнат со счётчиками: в одной комнате может лежать несколько одинаковых предметов
+    private static final class Postings {
+        int[] rooms = new int[2];
+        int[] counts = new int[2];
+        int size;
+
+        void add(int room) {
+            int i = Arrays.binarySearch(rooms, 0, size, room);
+            if (i >= 0) {
+                counts[i]++;
+                return;
+            }
+            i = -i - 1;
+            if (size == rooms.length) {
+                rooms = Arrays.copyOf(rooms, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            System.arraycopy(rooms, i, rooms, i + 1, size - i);
+            System.arraycopy(counts, i, counts, i + 1, size - i);
+            rooms[i] = room;
+            counts[i] = 1;
+            size++;
+        }
+
+        void remove(int room) {
+            int i = Arrays.binarySearch(rooms, 0, size, room);
+            if (i < 0) return;
+            if (--counts[i] > 0) return;
+            System.arraycopy(rooms, i + 1, rooms, i, size - i - 1);
+            System.arraycopy(counts, i + 1, counts, i, size - i - 1);
+            size--;
+        }
+    }
+
+    // Нижний регистр, ё -> е, пробелы по краям убраны, внутри схлопнуты в один (без регулярных выражений:
+    // нормализация идёт на каждое изменение комнаты)
+    public static String normalize(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(lower.length());
+        boolean space = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = sb.length() > 0;
+                continue;
+            }
+            if (space) sb.append(' ');
+            space = false;
+            sb.append(c == 'ё' ? 'е' : c);
+        }
+        return sb.toString();
+    }
+
+    void addItem(String name, int room) {
+        add(items, name, room);
+    }
+
+    void removeItem(String name, int room) {
+        remove(items, name, room);
+    }
+
+    void addMonster(String name, int room) {
+        add(monsters, name, room);
+    }
+
+    void removeMonster(String name, int room) {
+        remove(monsters, name, room);
+    }
+
+    // Комнаты с предметом, имя — целиком без учёта регистра
+    public int[] roomsWithItem(String name) {
+        return rooms(items.get(normalize(name)));
+    }
+
+    public int[] roomsWithMonster(String name) {
+        return rooms(monsters.get(normalize(name)));
+    }
+
+    public int countItem(String name) {
+        Postings p = items.get(normalize(name));
+        if (p == null) return 0;
+        int total = 0;
+        for (int i = 0; i < p.size; i++) total += p.counts[i];
+        return total;
+    }
+
+    // Нормализованные имена, содержащие part: точное совпадение первым, за ним до limit - 1 других
+    // совпадений по алфавиту. Это первые найденные совпадения, а не первые по алфавиту: перебор
+    // останавливается, как только набран limit. Перебираются только имена из самой редкой триграммы
+    // запроса; для частей короче триграммы — различные имена предметов и монстров
+    public List<String> search(String part, int limit) {
+        String q = normalize(part);
+        boolean exact = items.containsKey(q) || monsters.containsKey(q);
+        int wanted = limit - (exact ? 1 : 0);
+        List<String> result = new ArrayList<>();
+        if (q.length() < 3) {
+            collect(items.keySet(), q, wanted, result);
+            collect(monsters.keySet(), q, wanted, result);
+        } else {
+            Set<String> candidates = null;
+            for (int i = 0; i + 3 <= q.length(); i++) {
+                Set<String> names = grams.get(q.substring(i, i + 3));
+                if (names == null) return List.of();
+                if (candidates == null || names.size() < candidates.size()) candidates = names;
+            }
+            collect(candidates, q, wanted, result);
+        }
+        Collections.sort(result);
+        if (exact) result.addFirst(q);
+        return result;
+    }
+
+    private static void collect(Set<String> names, String q, int wanted, List<String> result) {
+        for (String name : names) {
+            if (result.size() >= wanted) return;
+            if (!name.equals(q) && name.contains(q) && !result.contains(name)) result.add(name);
+        }
+    }
+
+    public int distinctNames() {
+        return items.size() + monsters.size();
+    }
+
+    public long estimateBytes() {
+        return bytes;
+    }
+
+    private void add(Map<String, Postings> map, String name, int room) {
+        String key = normalize(name);
+        Postings p = map.get(key);
+        if (p == null) {
+            p = new Postings();
+            map.put(key, p);
+            bytes += NAME_BYTES + 2L * key.length();
+            if (!items.containsKey(key) || !monsters.containsKey(key)) addGrams(key);
+        }
+        p.add(room);
+    }
+
+    private void remove(Map<String, Postings> map, String name, int room) {
+        String key = normalize(name);
+        Postings p = map.get(key);
+        if (p == null) return;
+        p.remove(room);
+        if (p.size == 0) {
+            map.remove(key);
+            bytes -= NAME_BYTES + 2L * key.length();
+            if (!items.containsKey(key) && !monsters.containsKey(key)) removeGrams(key);
+        }
+    }
+
+    private void addGrams(String key) {
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            String g = key.substring(i, i + 3);
+            Set<String> names = grams.get(g);
+            if (names == null) {
+                grams.put(g, names = new HashSet<>());
+                bytes += GRAM_BYTES;
+            }
+            if (names.add(key)) bytes += GRAM_NAME_BYTES;
+        }
+    }
+
+    private void removeGrams(String key) {
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            String g = key.substring(i, i + 3);
+            Set<String> names = grams.get(g);
+            if (names == null || !names.remove(key)) continue;
+            bytes -= GRAM_NAME_BYTES;
+            if (names.isEmpty()) {
+                grams.remove(g);
+                bytes -= GRAM_BYTES;
+            }
+        }
+    }
+
+    private static int[] rooms(Postings p) {
+        return p == null ? new int[0] : Arrays.copyOf(p.rooms, p.size);
+    }
+}